@@ -0,0 +1,81 @@
+package com.yoanesber.rate_limit_with_redis.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import com.yoanesber.rate_limit_with_redis.RateLimitWithRedisApplication;
+
+/*
+ * Boots the application for a benchmark against an embedded Redis server and an in-memory H2
+ * database, so the benchmarks run offline on the production beans, scripts and codecs.
+ * The web server is not started; benchmarks call the services directly.
+ * Properties given by a benchmark override the defaults below, e.g. redis.codec.format.
+ */
+final class BenchmarkEnvironment implements AutoCloseable {
+
+    private final RedisServer redisServer;
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkEnvironment(RedisServer redisServer, ConfigurableApplicationContext context) {
+        this.redisServer = redisServer;
+        this.context = context;
+    }
+
+    static BenchmarkEnvironment start(Map<String, Object> properties) throws IOException {
+        int port = freePort();
+        RedisServer redisServer = new RedisServer(port);
+        redisServer.start();
+
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("spring.data.redis.host", "localhost");
+        defaults.put("spring.data.redis.port", port);
+        defaults.put("spring.data.redis.username", "default");
+        defaults.put("spring.data.redis.password", "");
+        defaults.put("spring.data.redis.timeout", 5);
+        defaults.put("spring.data.redis.connect-timeout", 3);
+        defaults.put("spring.data.redis.lettuce.shutdown-timeout", 1);
+        defaults.put("spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        defaults.put("spring.datasource.username", "sa");
+        defaults.put("spring.datasource.password", "");
+        defaults.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        defaults.put("spring.jpa.open-in-view", false);
+        defaults.put("logging.level.root", "WARN");
+        defaults.putAll(properties);
+
+        try {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(RateLimitWithRedisApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(defaults)
+                .run();
+            return new BenchmarkEnvironment(redisServer, context);
+        } catch (RuntimeException e) {
+            redisServer.stop();
+            throw e;
+        }
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            context.close();
+        } finally {
+            redisServer.stop();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.yoanesber.rate_limit_with_redis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs the benchmarks twice, each run writing its results as JSON under target/ for comparison
+ * between builds (e.g. with a JMH visualizer), with the gc profiler reporting allocation per operation:
+ * 1. Throughput in operations per second (target/jmh-throughput.json)
+ * 2. Sampled latency in microseconds with its percentiles up to p99.99 (target/jmh-latency.json)
+ * Command line arguments are JMH options, e.g. a benchmark name pattern or -p algorithm=GCRA.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        ChainedOptionsBuilder throughput = new OptionsBuilder()
+            .parent(commandLine)
+            .mode(Mode.Throughput)
+            .timeUnit(TimeUnit.SECONDS)
+            .result("target/jmh-throughput.json");
+        new Runner(withDefaults(throughput)).run();
+
+        ChainedOptionsBuilder latency = new OptionsBuilder()
+            .parent(commandLine)
+            .mode(Mode.SampleTime)
+            .timeUnit(TimeUnit.MICROSECONDS)
+            .result("target/jmh-latency.json");
+        new Runner(withDefaults(latency)).run();
+    }
+
+    private static Options withDefaults(ChainedOptionsBuilder builder) {
+        return builder
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .build();
+    }
+}
@@ -0,0 +1,126 @@
+package com.yoanesber.rate_limit_with_redis.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yoanesber.rate_limit_with_redis.entity.Department;
+import com.yoanesber.rate_limit_with_redis.repository.DepartmentRepository;
+import com.yoanesber.rate_limit_with_redis.service.DepartmentService;
+import com.yoanesber.rate_limit_with_redis.service.NearCacheService;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.util.RedisKeys;
+
+/*
+ * DepartmentServiceImpl.findById and findAll on the cache hit and cache miss paths,
+ * for each value codec format, with and without the near cache.
+ * A miss evicts the key from Redis and the near cache before the call, so it measures
+ * the database query, the encoding and the write back to Redis.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class DepartmentCacheBenchmark {
+
+    private static final int DEPARTMENTS = 100;
+    private static final String DEPARTMENTLIST_CACHE_KEY = "department-list-by-id";
+
+    @Param({"json", "smile"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean nearCache;
+
+    private BenchmarkEnvironment environment;
+    private DepartmentService departmentService;
+    private RedisService redisService;
+    private NearCacheService nearCacheService;
+    private List<String> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start(Map.of(
+            "redis.codec.format", format,
+            "near-cache.enabled", nearCache));
+        departmentService = environment.getBean(DepartmentService.class);
+        redisService = environment.getBean(RedisService.class);
+        nearCacheService = environment.getBean(NearCacheService.class);
+
+        List<Department> departments = new ArrayList<>(DEPARTMENTS);
+        for (int i = 0; i < DEPARTMENTS; i++) {
+            LocalDateTime now = LocalDateTime.now();
+            departments.add(new Department(String.format("d%03d", i), "Department " + i, true, 1L, now, 1L, now));
+        }
+        environment.getBean(DepartmentRepository.class).saveAll(departments);
+        ids = departments.stream().map(Department::getId).toList();
+
+        // Warm the cache for the hit benchmarks
+        ids.forEach(departmentService::findById);
+        departmentService.findAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    /*
+     * Evicts the keys read by the miss benchmarks before each call.
+     * Per-invocation setup is only accurate for calls far longer than the timer resolution,
+     * which holds here: every miss costs a database query and several Redis round trips.
+     */
+    @State(Scope.Thread)
+    public static class Miss {
+        private String id;
+
+        @Setup(Level.Invocation)
+        public void evict(DepartmentCacheBenchmark benchmark) {
+            id = benchmark.randomId();
+
+            String key = RedisKeys.tagged("department:", id);
+            benchmark.redisService.delete(key);
+            benchmark.redisService.delete(DEPARTMENTLIST_CACHE_KEY);
+            benchmark.nearCacheService.invalidate(key);
+            benchmark.nearCacheService.invalidate(DEPARTMENTLIST_CACHE_KEY);
+        }
+    }
+
+    @Benchmark
+    public Department findByIdHit() {
+        return departmentService.findById(randomId());
+    }
+
+    @Benchmark
+    public Department findByIdMiss(Miss miss) {
+        return departmentService.findById(miss.id);
+    }
+
+    @Benchmark
+    public List<Department> findAllHit() {
+        return departmentService.findAll();
+    }
+
+    // The Miss state is only taken for its eviction
+    @Benchmark
+    public List<Department> findAllMiss(Miss miss) {
+        return departmentService.findAll();
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.yoanesber.rate_limit_with_redis.benchmark;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitService;
+
+/*
+ * RateLimitService.check for every algorithm, one script round trip per call.
+ * * limit: a small limit spends most calls on the denied path, a large one on the allowed path
+ * * keys: 1 puts every thread on the same hot key, more spreads the load across clients
+ * * localTier: decides denied keys (and leased fixed window requests) in-process
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    @Param({"FIXED_WINDOW", "SLIDING_WINDOW_COUNTER", "SLIDING_WINDOW_LOG", "TOKEN_BUCKET", "GCRA"})
+    private RateLimitAlgorithm algorithm;
+
+    @Param({"100", "1000000"})
+    private int limit;
+
+    @Param({"1", "10000"})
+    private int keys;
+
+    @Param({"false", "true"})
+    private boolean localTier;
+
+    private BenchmarkEnvironment environment;
+    private RateLimitService rateLimitService;
+    private String[] clientKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        environment = BenchmarkEnvironment.start(Map.of("rate-limit.local-tier.enabled", localTier));
+        rateLimitService = environment.getBean(RateLimitService.class);
+
+        clientKeys = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            clientKeys[i] = "benchmark-client-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.close();
+    }
+
+    @Benchmark
+    public RateLimitDecision check() {
+        String key = clientKeys[ThreadLocalRandom.current().nextInt(clientKeys.length)];
+        return rateLimitService.check(key, limit, WINDOW_MILLIS, TimeUnit.MILLISECONDS, algorithm);
+    }
+}
@@ -0,0 +1,66 @@
+package com.yoanesber.rate_limit_with_redis.benchmark;
+
+import java.time.LocalDateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import com.yoanesber.rate_limit_with_redis.codec.ValueCodec;
+import com.yoanesber.rate_limit_with_redis.codec.ValueCodecRegistry;
+import com.yoanesber.rate_limit_with_redis.entity.Department;
+
+/*
+ * Encoding and decoding of a cached department by the value codecs, without Redis,
+ * for each format and compression setting selectable in redis.codec.*.
+ * Run with the gc profiler (the default of BenchmarkRunner) to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ValueCodecBenchmark {
+
+    @Param({"json", "smile"})
+    private String format;
+
+    // 0 disables compression, 1 compresses every value
+    @Param({"0", "1"})
+    private int compressionThreshold;
+
+    private ValueCodec<Department> codec;
+    private Department department;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Same date handling as the Spring ObjectMapper used by the application
+        ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+        codec = new ValueCodecRegistry(objectMapper, format, compressionThreshold).codecFor(Department.class);
+        department = new Department("d001", "Marketing", true, 1L, LocalDateTime.now(), 1L, LocalDateTime.now());
+        encoded = codec.encode(department);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(department);
+    }
+
+    @Benchmark
+    public Department decode() {
+        return codec.decode(encoded);
+    }
+}
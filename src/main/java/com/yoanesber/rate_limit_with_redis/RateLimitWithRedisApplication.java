@@ -2,8 +2,10 @@ package com.yoanesber.rate_limit_with_redis;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class RateLimitWithRedisApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,34 @@
+package com.yoanesber.rate_limit_with_redis.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.yoanesber.rate_limit_with_redis.resolver.RateLimitKeyResolver;
+import com.yoanesber.rate_limit_with_redis.resolver.RemoteAddressKeyResolver;
+
+/*
+ * Caps the number of requests in flight on a controller method (or every method of a controller),
+ * per client and for the route as a whole, across all nodes.
+ * Unlike @RateLimited, which bounds how many requests start per window, this bounds how many run
+ * at the same time, so a few clients sending slow requests cannot hold every thread and database
+ * connection. Enforced by ConcurrencyLimitInterceptor; a method-level annotation takes precedence.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface ConcurrencyLimited {
+    // Name of the limited route; defaults to the method name
+    String name() default "";
+
+    // Maximum number of in-flight requests per client
+    int limit();
+
+    // Maximum number of in-flight requests on the route across all clients and nodes; 0 for no limit
+    int globalLimit() default 0;
+
+    // Bean type that identifies the client, e.g. by IP address or API key
+    Class<? extends RateLimitKeyResolver> keyResolver() default RemoteAddressKeyResolver.class;
+}
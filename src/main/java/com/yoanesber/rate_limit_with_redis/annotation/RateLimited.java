@@ -0,0 +1,61 @@
+package com.yoanesber.rate_limit_with_redis.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.resolver.RateLimitKeyResolver;
+import com.yoanesber.rate_limit_with_redis.resolver.RemoteAddressKeyResolver;
+
+/*
+ * Marks a controller method (or every method of a controller) as rate limited.
+ * The check is enforced by RateLimitInterceptor before the request body is read
+ * and before the handler method is invoked.
+ * A method-level annotation takes precedence over a class-level one.
+ *
+ * Repeating the annotation limits a route along several dimensions at once, e.g. per IP address,
+ * per tenant and globally. All the limits of the route are checked in a single atomic call with
+ * the GCRA algorithm, and a request consumes quota only when every limit allows it.
+ *
+ * The limit counts permits rather than requests. A request is charged cost permits up front, and
+ * with rowsPerPermit its actual cost is measured from the rows of its response: the permits above
+ * the up-front cost are charged once the response is written, so later requests of the client pay
+ * for them. Repeated limits charge one permit per request.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Repeatable(RateLimits.class)
+public @interface RateLimited {
+    // Name of the limited route, appended to the client key; defaults to the method name
+    String name() default "";
+
+    // Maximum number of requests allowed in the window
+    int limit();
+
+    // Length of the window
+    long window() default 1;
+
+    // Time unit of the window
+    TimeUnit unit() default TimeUnit.MINUTES;
+
+    // Bean type that identifies the client, e.g. by IP address or API key
+    Class<? extends RateLimitKeyResolver> keyResolver() default RemoteAddressKeyResolver.class;
+
+    // Algorithm used to count the requests; repeated limits always use GCRA
+    RateLimitAlgorithm algorithm() default RateLimitAlgorithm.FIXED_WINDOW;
+
+    // Name of the limit among repeated limits; defaults to the key resolver's dimension, e.g. "ip"
+    String dimension() default "";
+
+    // Permits charged before the handler runs, e.g. more for an expensive query
+    int cost() default 1;
+
+    // Rows of the response per permit, 0 to only charge the up-front cost
+    int rowsPerPermit() default 0;
+}
@@ -0,0 +1,19 @@
+package com.yoanesber.rate_limit_with_redis.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Container of repeated @RateLimited annotations.
+ * The limits of a method annotated several times are checked together in one call:
+ * a request is admitted only when every limit allows it.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RateLimits {
+    RateLimited[] value();
+}
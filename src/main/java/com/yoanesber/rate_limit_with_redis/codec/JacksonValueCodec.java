@@ -0,0 +1,96 @@
+package com.yoanesber.rate_limit_with_redis.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/*
+ * Jackson based codec bound to one target type.
+ * The ObjectReaders and the ObjectWriter are created once per type, so encoding and decoding
+ * skip the per-call type resolution, and bytes are decoded directly into the target type
+ * instead of going through an intermediate LinkedHashMap.
+ *
+ * The stored format is detected when decoding, so values written as JSON, Smile or compressed
+ * stay readable after the configured format changes:
+ * * GZIP magic bytes (0x1f 0x8b): the value was compressed because it exceeded the threshold
+ * * Smile header (":)\n"): the value is binary Smile
+ * * anything else: the value is JSON
+ */
+public class JacksonValueCodec<T> implements ValueCodec<T> {
+
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+    private static final byte GZIP_MAGIC_FIRST = (byte) 0x1f;
+    private static final byte GZIP_MAGIC_SECOND = (byte) 0x8b;
+
+    private final ObjectWriter writer;
+    private final ObjectReader jsonReader;
+    private final ObjectReader smileReader;
+    private final int compressionThreshold; // Compress encoded values at least this large; 0 disables compression
+
+    public JacksonValueCodec(ObjectWriter writer, ObjectReader jsonReader, ObjectReader smileReader, int compressionThreshold) {
+        this.writer = writer;
+        this.jsonReader = jsonReader;
+        this.smileReader = smileReader;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        try {
+            byte[] bytes = writer.writeValueAsBytes(value);
+
+            if (compressionThreshold > 0 && bytes.length >= compressionThreshold) {
+                return compress(bytes);
+            }
+
+            return bytes;
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+
+        try {
+            if (startsWith(bytes, GZIP_MAGIC_FIRST, GZIP_MAGIC_SECOND)) {
+                bytes = decompress(bytes);
+            }
+
+            if (startsWith(bytes, SMILE_HEADER[0], SMILE_HEADER[1]) && bytes.length > 2 && bytes[2] == SMILE_HEADER[2]) {
+                return smileReader.readValue(bytes);
+            }
+
+            return jsonReader.readValue(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, byte first, byte second) {
+        return bytes.length >= 2 && bytes[0] == first && bytes[1] == second;
+    }
+
+    private static byte[] compress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(bytes);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] bytes) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.yoanesber.rate_limit_with_redis.codec;
+
+public interface ValueCodec<T> {
+    // Encode a value into the bytes stored in Redis
+    byte[] encode(T value);
+
+    // Decode the bytes stored in Redis straight into the target type
+    T decode(byte[] bytes);
+}
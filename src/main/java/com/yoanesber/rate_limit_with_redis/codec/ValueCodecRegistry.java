@@ -0,0 +1,80 @@
+package com.yoanesber.rate_limit_with_redis.codec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import com.yoanesber.rate_limit_with_redis.entity.Department;
+
+/*
+ * Codecs used by RedisService to encode and decode values, one per value type.
+ * Cached types are registered eagerly; any other type gets a codec on first use.
+ * 
+ * * redis.codec.format: "json" (default, human-readable) or "smile" (binary JSON, smaller and faster to parse)
+ * * redis.codec.compression-threshold: GZIP encoded values of at least this many bytes; 0 disables compression
+ */
+@Component
+public class ValueCodecRegistry {
+
+    private static final String FORMAT_SMILE = "smile";
+
+    private final Map<Class<?>, ValueCodec<?>> codecs = new ConcurrentHashMap<>();
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final boolean writeSmile;
+    private final int compressionThreshold;
+
+    public ValueCodecRegistry(ObjectMapper objectMapper,
+        @Value("${redis.codec.format:json}") String format,
+        @Value("${redis.codec.compression-threshold:0}") int compressionThreshold) {
+        // The Spring ObjectMapper already writes Java 8 dates as ISO-8601 strings, like RedisConfig does
+        this.jsonMapper = objectMapper;
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+        this.writeSmile = FORMAT_SMILE.equalsIgnoreCase(format);
+        this.compressionThreshold = compressionThreshold;
+
+        register(Department.class);
+    }
+
+    // Retrieve the codec of a type, creating it on first use
+    @SuppressWarnings("unchecked")
+    public <T> ValueCodec<T> codecFor(Class<T> type) {
+        Assert.notNull(type, "Type cannot be null");
+
+        ValueCodec<?> codec = codecs.get(type);
+        if (codec == null) {
+            codec = codecs.computeIfAbsent(type, this::createCodec);
+        }
+
+        return (ValueCodec<T>) codec;
+    }
+
+    // Encode a value with the codec of its runtime type
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Object value) {
+        Assert.notNull(value, "Value cannot be null");
+        return ((ValueCodec<Object>) codecFor(value.getClass())).encode(value);
+    }
+
+    // Decode bytes with the codec of the target type
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        return bytes == null ? null : codecFor(type).decode(bytes);
+    }
+
+    private void register(Class<?> type) {
+        codecs.put(type, createCodec(type));
+    }
+
+    private <T> ValueCodec<T> createCodec(Class<T> type) {
+        return new JacksonValueCodec<>(
+            (writeSmile ? smileMapper : jsonMapper).writerFor(type),
+            jsonMapper.readerFor(type),
+            smileMapper.readerFor(type),
+            compressionThreshold);
+    }
+}
@@ -0,0 +1,32 @@
+package com.yoanesber.rate_limit_with_redis.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/*
+ * Expiration of cached keys, e.g.:
+ * 
+ * cache.ttl.department=30m
+ * cache.ttl.department-list=10m
+ * cache.default-ttl=1h
+ * cache.ttl-jitter=0.1
+ * cache.negative-ttl=30s
+ * 
+ * * ttl: time to live per keyspace; keyspaces without one use default-ttl
+ * * ttl-jitter: each TTL is spread randomly by up to this fraction, so keys written
+ *   together (e.g. after a restart) do not all expire at the same moment
+ * * negative-ttl: how long a lookup of a missing id is remembered as missing
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+    private Map<String, Duration> ttl = new HashMap<>();
+    private Duration defaultTtl = Duration.ofHours(1);
+    private double ttlJitter = 0.1;
+    private Duration negativeTtl = Duration.ofSeconds(30);
+}
@@ -0,0 +1,24 @@
+package com.yoanesber.rate_limit_with_redis.config;
+
+import io.lettuce.core.metrics.MicrometerOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /*
+     * Lettuce records the latency of every Redis command it sends, on both the cache and the
+     * rate limit connections, as lettuce.command.completion and lettuce.command.firstresponse,
+     * tagged by command type (GET, SET, EVALSHA, ...) and server address.
+     * Spring Boot registers the recorder; this bean replaces its default options to publish
+     * percentile histograms, so tail latencies can be aggregated across nodes.
+     */
+    @Bean
+    public MicrometerOptions micrometerOptions(@Value("${redis.metrics.histogram:true}") boolean histogram) {
+        return MicrometerOptions.builder()
+            .histogram(histogram)
+            .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.yoanesber.rate_limit_with_redis.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+
+/*
+ * Rate limit quotas loaded from configuration, e.g.:
+ * 
+ * rate-limit.policies.find-all-departments.default.limit=5
+ * rate-limit.policies.find-all-departments.default.window=1m
+ * rate-limit.policies.find-all-departments.premium.limit=100
+ * rate-limit.policies.find-all-departments.premium.algorithm=GCRA
+ * rate-limit.tenants.<api-key>=premium
+ * rate-limit.users.<user>=premium
+ * rate-limit.ips.[10.0.0.1]=premium
+ * 
+ * * policies: quotas per route name (as in @RateLimited) and per client tier;
+ *   the "default" tier applies to clients matching none of the tier assignments
+ * * tenants: client tier of each API key
+ * * users: client tier of each authenticated user (HttpServletRequest.getRemoteUser())
+ * * ips: client tier of each client IP address; keys containing dots or colons go in brackets
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    private Map<String, Map<String, Quota>> policies = new HashMap<>();
+    private Map<String, String> tenants = new HashMap<>();
+    private Map<String, String> users = new HashMap<>();
+    private Map<String, String> ips = new HashMap<>();
+
+    @Data
+    @NoArgsConstructor
+    public static class Quota {
+        private int limit;
+        private Duration window = Duration.ofMinutes(1);
+        private RateLimitAlgorithm algorithm = RateLimitAlgorithm.FIXED_WINDOW;
+    }
+}
@@ -1,23 +1,42 @@
 package com.yoanesber.rate_limit_with_redis.config;
 
 import io.lettuce.core.ClientOptions;
+import io.lettuce.core.ReadFrom;
 import io.lettuce.core.SocketOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
 import io.lettuce.core.resource.ClientResources;
 import io.lettuce.core.resource.DefaultClientResources;
 import java.time.Duration;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.ClientResourcesBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.StringUtils;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yoanesber.rate_limit_with_redis.codec.ValueCodecRegistry;
+import com.yoanesber.rate_limit_with_redis.service.ReactiveRedisService;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.service.impl.ReactiveRedisServiceImpl;
+import com.yoanesber.rate_limit_with_redis.service.impl.RedisServiceImpl;
 
 @Configuration
 public class RedisConfig {
@@ -43,14 +62,68 @@ public class RedisConfig {
     @Value("${spring.data.redis.connect-timeout}")
     private long connectTimeout;
 
+    // Topology: "standalone" (default), "cluster" or "sentinel"
+    @Value("${redis.mode:standalone}")
+    private String redisMode;
+
+    @Value("${spring.data.redis.cluster.nodes:}")
+    private String clusterNodes;
+
+    @Value("${spring.data.redis.cluster.max-redirects:3}")
+    private int clusterMaxRedirects;
+
+    @Value("${redis.cluster.topology-refresh-period-ms:30000}")
+    private long topologyRefreshPeriodMillis;
+
+    @Value("${spring.data.redis.sentinel.master:}")
+    private String sentinelMaster;
+
+    @Value("${spring.data.redis.sentinel.nodes:}")
+    private String sentinelNodes;
+
+    @Value("${spring.data.redis.sentinel.password:}")
+    private String sentinelPassword;
+
+    // Nodes serving reads in cluster and sentinel modes, e.g. "replicaPreferred"; see io.lettuce.core.ReadFrom
+    @Value("${redis.read-from:upstream}")
+    private String readFrom;
+
+    // Rate limit traffic: its own connection with a short command timeout
+    @Value("${redis.rate-limit.command-timeout-ms:500}")
+    private long rateLimitCommandTimeoutMillis;
+
+    // Cache traffic: optionally pooled, so a large payload never queues in front of other commands
+    @Value("${redis.cache.pool.enabled:false}")
+    private boolean cachePoolEnabled;
+
+    @Value("${redis.cache.pool.max-total:16}")
+    private int cachePoolMaxTotal;
+
+    @Value("${redis.cache.pool.max-idle:8}")
+    private int cachePoolMaxIdle;
+
+    @Value("${redis.cache.pool.min-idle:0}")
+    private int cachePoolMinIdle;
+
+    // Commands buffered per flush in cache pipelines; 0 flushes every command
+    @Value("${redis.cache.pipelining-flush-size:0}")
+    private int cachePipeliningFlushSize;
+
+    private static final String MODE_CLUSTER = "cluster";
+    private static final String MODE_SENTINEL = "sentinel";
+
     /*
      * Create a shared instance of ClientResources to be used by LettuceConnectionFactory.
      * ClientResources is a shared resource that manages the lifecycle of the Lettuce client.
+     * Spring Boot's customizers are applied, among them the Micrometer command latency recorder
+     * configured in MetricsConfig.
      */
 
     @Bean(destroyMethod = "shutdown")
-    public ClientResources clientResources() {
-        return DefaultClientResources.create();
+    public ClientResources clientResources(ObjectProvider<ClientResourcesBuilderCustomizer> customizers) {
+        DefaultClientResources.Builder builder = DefaultClientResources.builder();
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return builder.build();
     }
 
     /*
@@ -61,15 +134,12 @@ public class RedisConfig {
      * RedisTemplate is used by RedisPublisher to publish messages to Redis.
      * 
      * LettuceConnectionFactory requires two configurations:
-     * 1. RedisStandaloneConfiguration: defines the Redis server configuration
+     * 1. RedisConfiguration: defines the Redis server configuration, depending on redis.mode:
+     *    * standalone: RedisStandaloneConfiguration with hostName, port, username and password
+     *    * cluster: RedisClusterConfiguration with the seed nodes (spring.data.redis.cluster.nodes) and maxRedirects
+     *    * sentinel: RedisSentinelConfiguration with the master name and the sentinel nodes
      * 2. LettuceClientConfiguration: defines the Lettuce client configuration
      * 
-     * In RedisStandaloneConfiguration we set the following properties:
-     * * hostName: defines the Redis server host name
-     * * port: defines the Redis server port
-     * * username: defines the Redis server username
-     * * password: defines the Redis server password
-     * 
      * In LettuceClientConfiguration we set the following properties:
      * * commandTimeout: defines the maximum amount of time to wait for a command to complete before timing out; If the command is not completed within this time, a TimeoutException is thrown
      * * clientResources: defines the shared client resources; It is used to manage the lifecycle of the Lettuce client
@@ -77,81 +147,196 @@ public class RedisConfig {
      * * shutdownTimeout: defines the maximum amount of time to wait for the client to close gracefully; If the client is not closed within this time, a TimeoutException is thrown
      * * socketOptions: defines the socket options for the client
      * * connectTimeout: defines the maximum amount of time to wait for a connection to be established before timing out; If the connection is not established within this time, a TimeoutException is thrown
+     * * topologyRefreshOptions (cluster): refreshes the slot map periodically and on MOVED/ASK redirections and reconnects,
+     *   so failovers and resharding are picked up without a restart
+     * * readFrom (cluster, sentinel): lets replicas serve read-only commands such as the department cache GETs;
+     *   writes and Lua scripts, hence all rate limit checks, always go to the masters
+     * 
+     * This factory carries the cache traffic. When redis.cache.pool.enabled is set, every operation
+     * borrows its own connection from a commons-pool2 pool instead of sharing one native connection,
+     * and pipelines flush every redis.cache.pipelining-flush-size commands instead of on every command.
      */
     @Bean
+    @Primary
     public LettuceConnectionFactory redisConnectionFactory(ClientResources clientResources) {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder clientConfig = cachePoolEnabled
+            ? LettucePoolingClientConfiguration.builder().poolConfig(cachePoolConfig())
+            : LettuceClientConfiguration.builder();
+
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(serverConfiguration(),
+            clientConfiguration(clientConfig, clientResources, Duration.ofSeconds(redisTimeout), true));
+        factory.setShareNativeConnection(!cachePoolEnabled);
+
+        if (cachePipeliningFlushSize > 0) {
+            factory.setPipeliningFlushPolicy(LettuceConnection.PipeliningFlushPolicy.buffered(cachePipeliningFlushSize));
+        }
+
+        return factory;
+    }
+
+    /*
+     * Create a dedicated LettuceConnectionFactory for the rate limit checks.
+     * All commands on a Lettuce connection share one socket and are answered in order, so a large
+     * cache payload (e.g. the department list) would delay every rate limit check queued behind it.
+     * The rate limiter gets its own connection, on the same shared ClientResources, with a command
+     * timeout of redis.rate-limit.command-timeout-ms: its commands are small single-key scripts,
+     * and a check that cannot be answered quickly is better failed than waited for.
+     * It always reads from the masters.
+     */
+    @Bean
+    public LettuceConnectionFactory rateLimitConnectionFactory(ClientResources clientResources) {
+        return new LettuceConnectionFactory(serverConfiguration(), clientConfiguration(LettuceClientConfiguration.builder(),
+            clientResources, Duration.ofMillis(rateLimitCommandTimeoutMillis), false));
+    }
+
+    private GenericObjectPoolConfig<?> cachePoolConfig() {
+        GenericObjectPoolConfig<?> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal(cachePoolMaxTotal);
+        poolConfig.setMaxIdle(cachePoolMaxIdle);
+        poolConfig.setMinIdle(cachePoolMinIdle);
+        return poolConfig;
+    }
+
+    private LettuceClientConfiguration clientConfiguration(LettuceClientConfiguration.LettuceClientConfigurationBuilder clientConfig,
+        ClientResources clientResources, Duration commandTimeout, boolean readFromReplicas) {
+        SocketOptions socketOptions = SocketOptions.builder()
+            .connectTimeout(Duration.ofSeconds(connectTimeout)) // Set connection timeout; default is 10s
+            .build();
+
+        // Configure LettuceClientConfiguration
+        clientConfig
+            .commandTimeout(commandTimeout) // Set timeout for commands; default is 60s
+            .shutdownTimeout(Duration.ofSeconds(shutdownTimeout)) // Graceful shutdown; default is 100ms
+            .clientResources(clientResources); // Use shared client resources
+
+        if (MODE_CLUSTER.equalsIgnoreCase(redisMode)) {
+            clientConfig.clientOptions(ClusterClientOptions.builder()
+                .socketOptions(socketOptions)
+                .topologyRefreshOptions(ClusterTopologyRefreshOptions.builder()
+                    .enablePeriodicRefresh(Duration.ofMillis(topologyRefreshPeriodMillis))
+                    .enableAllAdaptiveRefreshTriggers()
+                    .build())
+                .build());
+        } else {
+            clientConfig.clientOptions(ClientOptions.builder()
+                .socketOptions(socketOptions)
+                .build());
+        }
+
+        if (readFromReplicas && (MODE_CLUSTER.equalsIgnoreCase(redisMode) || MODE_SENTINEL.equalsIgnoreCase(redisMode))) {
+            clientConfig.readFrom(ReadFrom.valueOf(readFrom));
+        }
+
+        return clientConfig.build();
+    }
+
+    private RedisConfiguration serverConfiguration() {
+        if (MODE_CLUSTER.equalsIgnoreCase(redisMode)) {
+            RedisClusterConfiguration clusterConfig = new RedisClusterConfiguration(
+                StringUtils.commaDelimitedListToSet(clusterNodes));
+            clusterConfig.setMaxRedirects(clusterMaxRedirects);
+            clusterConfig.setUsername(redisUsername);
+            clusterConfig.setPassword(redisPassword);
+            return clusterConfig;
+        }
+
+        if (MODE_SENTINEL.equalsIgnoreCase(redisMode)) {
+            RedisSentinelConfiguration sentinelConfig = new RedisSentinelConfiguration(sentinelMaster,
+                StringUtils.commaDelimitedListToSet(sentinelNodes));
+            sentinelConfig.setUsername(redisUsername);
+            sentinelConfig.setPassword(redisPassword);
+            if (StringUtils.hasText(sentinelPassword)) {
+                sentinelConfig.setSentinelPassword(sentinelPassword);
+            }
+            return sentinelConfig;
+        }
+
         // Configure RedisStandaloneConfiguration
         RedisStandaloneConfiguration serverConfig = new RedisStandaloneConfiguration();
         serverConfig.setHostName(redisHost);
         serverConfig.setPort(redisPort);
         serverConfig.setUsername(redisUsername);
         serverConfig.setPassword(redisPassword);
-
-        // Configure LettuceClientConfiguration
-        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
-            .commandTimeout(Duration.ofSeconds(redisTimeout)) // Set timeout for commands; default is 60s
-            .shutdownTimeout(Duration.ofSeconds(shutdownTimeout)) // Graceful shutdown; default is 100ms
-            .clientResources(clientResources) // Use shared client resources
-            .clientOptions(ClientOptions.builder()
-                .socketOptions(SocketOptions.builder()
-                    .connectTimeout(Duration.ofSeconds(connectTimeout)) // Set connection timeout; default is 10s
-                    .build())
-                .build())
-            .build();
-
-        return new LettuceConnectionFactory(serverConfig, clientConfig);
+        return serverConfig;
     }
 
-     /*
-     * Create a RedisTemplate bean that uses the RedisConnectionFactory.
-     * RedisTemplate is a high-level abstraction for Redis operations.
-     * It provides methods for common Redis operations such as CRUD operations, transactions, and pub/sub.
-     * 
-     * RedisTemplate requires two serializers:
-     * 1. KeySerializer: defines the serializer for keys (channels)
-     * 2. ValueSerializer: defines the serializer for values (messages)
-     * 
-     * In this example, we use the following serializers:
-     * * StringRedisSerializer: serializer for keys (channels)
-     * * Jackson2JsonRedisSerializer: serializer for values (messages)
+    /*
+     * Create a RedisTemplate bean that stores values as raw bytes.
+     * RedisService encodes and decodes values itself with the typed codecs of ValueCodecRegistry,
+     * so values are decoded straight into their target type in a single pass instead of being
+     * deserialized into a LinkedHashMap by Jackson2JsonRedisSerializer and then converted again.
      * 
-     * Jackson2JsonRedisSerializer is a JSON serializer that uses Jackson ObjectMapper to serialize/deserialize objects.
-     * We configure Jackson2JsonRedisSerializer to use JavaTimeModule for Java 8 Date/Time classes.
-     * We also disable WRITE_DATES_AS_TIMESTAMPS to serialize dates as ISO-8601 formatted strings instead of timestamps.
+     * In this template we use the following serializers:
+     * * StringRedisSerializer: serializer for keys and hash keys
+     * * RedisSerializer.byteArray(): pass-through serializer for values and hash values
      */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate() {
-        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
-        redisTemplate.setConnectionFactory(redisConnectionFactory(this.clientResources()));
-
-        // Create ObjectMapper with JavaTimeModule
-        ObjectMapper objectMapper = new ObjectMapper();
+    public RedisTemplate<String, byte[]> binaryRedisTemplate(LettuceConnectionFactory redisConnectionFactory) {
+        return createBinaryRedisTemplate(redisConnectionFactory);
+    }
 
-        // Register JavaTimeModule to serialize/deserialize Java 8 Date/Time classes
-        objectMapper.registerModule(new JavaTimeModule());
-        
-        // Disable WRITE_DATES_AS_TIMESTAMPS because JavaTimeModule writes dates as timestamps by default that are not human-readable, e.g. 1630454400000
-        // When we disable SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, Jackson will convert dates to ISO-8601 formatted strings instead of timestamps e.g. 2021-12-31T23:59:59.999Z
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private static RedisTemplate<String, byte[]> createBinaryRedisTemplate(LettuceConnectionFactory redisConnectionFactory) {
+        RedisTemplate<String, byte[]> binaryRedisTemplate = new RedisTemplate<>();
+        binaryRedisTemplate.setConnectionFactory(redisConnectionFactory);
+        binaryRedisTemplate.setKeySerializer(new StringRedisSerializer());
+        binaryRedisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        binaryRedisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        binaryRedisTemplate.setHashValueSerializer(RedisSerializer.byteArray());
+        binaryRedisTemplate.afterPropertiesSet();
 
-        // Create Jackson2JsonRedisSerializer with ObjectMapper
-        Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(objectMapper, Object.class);
+        return binaryRedisTemplate;
+    }
 
-        // Use String serializer for keys (channels)
-        redisTemplate.setKeySerializer(new StringRedisSerializer());
+    /*
+     * Create a RedisTemplate bean on the rate limit connection, and the RedisService used by the
+     * rate limit strategies on top of it, so rate limit checks never queue behind cache traffic.
+     */
+    @Bean
+    public RedisTemplate<String, byte[]> rateLimitRedisTemplate(
+        @Qualifier("rateLimitConnectionFactory") LettuceConnectionFactory rateLimitConnectionFactory) {
+        return createBinaryRedisTemplate(rateLimitConnectionFactory);
+    }
 
-        // Use JSON serializer for values (messages)
-        redisTemplate.setValueSerializer(serializer);
+    @Bean
+    public RedisService rateLimitRedisService(ValueCodecRegistry codecs,
+        @Qualifier("rateLimitRedisTemplate") RedisTemplate<String, byte[]> rateLimitRedisTemplate) {
+        return new RedisServiceImpl(codecs, rateLimitRedisTemplate);
+    }
 
-        // Use String serializer for hash keys (channels)
-        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+    /*
+     * Create a ReactiveRedisTemplate bean on the rate limit connection, and the ReactiveRedisService
+     * used by ReactiveRateLimitService on top of it. Commands complete on the Lettuce event loop of the
+     * shared ClientResources instead of parking the calling thread.
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, byte[]> rateLimitReactiveRedisTemplate(
+        @Qualifier("rateLimitConnectionFactory") LettuceConnectionFactory rateLimitConnectionFactory) {
+        RedisSerializationContext<String, byte[]> serializationContext = RedisSerializationContext
+            .<String, byte[]>newSerializationContext(new StringRedisSerializer())
+            .value(RedisSerializer.byteArray())
+            .hashKey(new StringRedisSerializer())
+            .hashValue(RedisSerializer.byteArray())
+            .build();
 
-        // Use JSON serializer for hash values (messages)
-        redisTemplate.setHashValueSerializer(serializer);
+        return new ReactiveRedisTemplate<>(rateLimitConnectionFactory, serializationContext);
+    }
 
-        // Initialize RedisTemplate after setting serializers
-        redisTemplate.afterPropertiesSet();
+    @Bean
+    public ReactiveRedisService rateLimitReactiveRedisService(
+        @Qualifier("rateLimitReactiveRedisTemplate") ReactiveRedisTemplate<String, byte[]> rateLimitReactiveRedisTemplate) {
+        return new ReactiveRedisServiceImpl(rateLimitReactiveRedisTemplate);
+    }
 
-        return redisTemplate;
+    /*
+     * Create a RedisMessageListenerContainer bean that uses the RedisConnectionFactory.
+     * RedisMessageListenerContainer manages a dedicated pub/sub connection and dispatches
+     * the messages received on the subscribed channels to the registered MessageListeners.
+     * It is used to receive near cache invalidations published by the other nodes.
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(LettuceConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
     }
 }
@@ -0,0 +1,68 @@
+package com.yoanesber.rate_limit_with_redis.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/*
+ * Reports virtual threads pinned to their carrier thread while running in virtual thread mode
+ * (spring.threads.virtual.enabled=true).
+ * A virtual thread that blocks inside a synchronized block or a native frame cannot unmount,
+ * so it holds one of the few carrier threads for the whole wait and throughput drops back
+ * to the size of the carrier pool. The JDK emits a jdk.VirtualThreadPinned JFR event for every
+ * pinning longer than virtual-threads.pinned-threshold-ms; this monitor streams them in-process
+ * and logs each one with the top of its stack, so a pinning section on the hot path shows up
+ * in the application log under load.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+
+    @Value("${virtual-threads.pinning-monitor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${virtual-threads.pinned-threshold-ms:20}")
+    private long pinnedThresholdMillis;
+
+    private RecordingStream recordingStream;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(pinnedThresholdMillis)).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::logPinned);
+        recordingStream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    private void logPinned(RecordedEvent event) {
+        String stack = event.getStackTrace() == null ? "unknown" : event.getStackTrace().getFrames().stream()
+            .limit(LOGGED_FRAMES)
+            .map(RecordedFrame::toString)
+            .collect(Collectors.joining("\n\tat "));
+
+        log.warn("Virtual thread pinned to its carrier for {} ms:\n\tat {}", event.getDuration().toMillis(), stack);
+    }
+}
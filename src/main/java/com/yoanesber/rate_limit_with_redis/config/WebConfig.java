@@ -0,0 +1,31 @@
+package com.yoanesber.rate_limit_with_redis.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.yoanesber.rate_limit_with_redis.interceptor.ConcurrencyLimitInterceptor;
+import com.yoanesber.rate_limit_with_redis.interceptor.RateLimitInterceptor;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final RateLimitInterceptor rateLimitInterceptor;
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    public WebConfig(RateLimitInterceptor rateLimitInterceptor, ConcurrencyLimitInterceptor concurrencyLimitInterceptor) {
+        this.rateLimitInterceptor = rateLimitInterceptor;
+        this.concurrencyLimitInterceptor = concurrencyLimitInterceptor;
+    }
+
+    /*
+     * Register the RateLimitInterceptor for every request.
+     * Handler methods without @RateLimited are passed through after a single cached lookup.
+     * The ConcurrencyLimitInterceptor runs second, so only requests within their rate limit take a slot.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor);
+        registry.addInterceptor(concurrencyLimitInterceptor);
+    }
+}
@@ -1,7 +1,11 @@
 package com.yoanesber.rate_limit_with_redis.controller;
 
-import java.util.concurrent.TimeUnit;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,56 +15,41 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.yoanesber.rate_limit_with_redis.annotation.ConcurrencyLimited;
+import com.yoanesber.rate_limit_with_redis.annotation.RateLimited;
 import com.yoanesber.rate_limit_with_redis.dto.SaveDepartmentRequestDTO;
 import com.yoanesber.rate_limit_with_redis.dto.UpdateDepartmentRequestDTO;
 import com.yoanesber.rate_limit_with_redis.entity.CustomHttpResponse;
 import com.yoanesber.rate_limit_with_redis.entity.Department;
 import com.yoanesber.rate_limit_with_redis.service.DepartmentService;
-import com.yoanesber.rate_limit_with_redis.service.RateLimitService;
-
-import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/v1/departments")
+@ConcurrencyLimited(limit = 10) // In-flight requests per client and endpoint
 public class DepartmentController {
 
-    // Rate limit configuration
-    private static final String RATE_LIMIT_POSTFIX_SAVE = ".save-department";
-    private static final String RATE_LIMIT_POSTFIX_FIND_ALL = ".find-all-departments";
-    private static final String RATE_LIMIT_POSTFIX_FIND_BY_ID = ".find-department-by-id";
-    private static final String RATE_LIMIT_POSTFIX_UPDATE = ".update-department";
-    private static final String RATE_LIMIT_POSTFIX_DELETE = ".delete-department";
-    private static final int MAX_REQUESTS = 5;
-    private static final long DURATION = 1;
-    private static final TimeUnit TIME_UNIT = TimeUnit.MINUTES;
-
     // Inject services and dependencies
     private final DepartmentService departmentService;
-    private final RateLimitService rateLimitService;
+    private final ObjectMapper objectMapper;
+    private static final int DEFAULT_PAGE_SIZE = 100; // Page size when only after is given
 
-    public DepartmentController(DepartmentService departmentService,
-        RateLimitService rateLimitService) {
+    public DepartmentController(DepartmentService departmentService, ObjectMapper objectMapper) {
         this.departmentService = departmentService;
-        this.rateLimitService = rateLimitService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
-    public ResponseEntity<CustomHttpResponse> save(@RequestBody SaveDepartmentRequestDTO departmentDTO, HttpServletRequest request) {
+    @RateLimited(name = "save-department", limit = 5)
+    public ResponseEntity<CustomHttpResponse> save(@RequestBody SaveDepartmentRequestDTO departmentDTO) {
         Assert.notNull(departmentDTO, "DepartmentDTO cannot be null");
 
         try {
-            // Use the client unique identifier if available, e.g., user ID
-            final String RATE_LIMIT_KEY = request.getRemoteAddr() + RATE_LIMIT_POSTFIX_SAVE;
-
-            // Check if the request is allowed
-            if (!rateLimitService.isAllowed(RATE_LIMIT_KEY, MAX_REQUESTS, DURATION, TIME_UNIT)) {
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                    .body(new CustomHttpResponse(HttpStatus.TOO_MANY_REQUESTS.value(), 
-                    "Too many requests", null));
-            }
-
             // Save department & return response
             return ResponseEntity.status(HttpStatus.CREATED)
                 .body(new CustomHttpResponse(HttpStatus.CREATED.value(), 
@@ -73,22 +62,20 @@ public class DepartmentController {
     }
 
     @GetMapping
-    public ResponseEntity<CustomHttpResponse> findAll(HttpServletRequest request) {
+    @RateLimited(name = "find-all-departments", limit = 20, rowsPerPermit = 25) // 1 permit per 25 rows: a page of 100 costs 4
+    public ResponseEntity<CustomHttpResponse> findAll(@RequestParam(name = "after", required = false) String after,
+        @RequestParam(name = "size", required = false) Integer size) {
         try {
-            // Use the client unique identifier if available, e.g., user ID
-            final String RATE_LIMIT_KEY = request.getRemoteAddr() + RATE_LIMIT_POSTFIX_FIND_ALL;
-
-            // Check if the request is allowed
-            if (!rateLimitService.isAllowed(RATE_LIMIT_KEY, MAX_REQUESTS, DURATION, TIME_UNIT)) {
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                    .body(new CustomHttpResponse(HttpStatus.TOO_MANY_REQUESTS.value(), 
-                    "Too many requests", null));
-            }
-
-            // Return all departments
+            // Without after or size return every department; with either, return a page whose next one starts after its nextCursor
             return ResponseEntity.status(HttpStatus.OK)
                 .body(new CustomHttpResponse(HttpStatus.OK.value(), 
-                "Departments retrieved successfully", departmentService.findAll()));
+                "Departments retrieved successfully", after == null && size == null
+                    ? departmentService.findAll()
+                    : departmentService.findPage(after, size == null ? DEFAULT_PAGE_SIZE : size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new CustomHttpResponse(HttpStatus.BAD_REQUEST.value(), 
+                "Invalid page request", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new CustomHttpResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), 
@@ -96,21 +83,45 @@ public class DepartmentController {
         }
     }
 
+    /*
+     * Writes every department in the same envelope as the other endpoints, row by row as they are
+     * read from the database, so memory use does not depend on the size of the table.
+     * The status is sent with the first bytes: an error while streaming aborts the response
+     * instead of turning it into a 500. The generator does not close the open array and object
+     * on the way out, so a client reading a truncated stream gets invalid JSON, never a complete
+     * looking 200 with rows missing.
+     */
+    @GetMapping("/stream")
+    @RateLimited(name = "stream-departments", limit = 5, cost = 5)
+    public void streamAll(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT)) {
+            generator.writeStartObject();
+            generator.writeNumberField("statusCode", HttpStatus.OK.value());
+            generator.writeObjectField("timestamp", Instant.now());
+            generator.writeStringField("message", "Departments retrieved successfully");
+            generator.writeArrayFieldStart("data");
+            departmentService.streamAll(department -> {
+                try {
+                    generator.writeObject(department);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<CustomHttpResponse> findById(@PathVariable("id") String id, HttpServletRequest request) {
+    @RateLimited(name = "find-department-by-id", limit = 5)
+    public ResponseEntity<CustomHttpResponse> findById(@PathVariable("id") String id) {
         Assert.notNull(id, "Id cannot be null");
 
         try {
-            // Use the client unique identifier if available, e.g., user ID
-            final String RATE_LIMIT_KEY = request.getRemoteAddr() + RATE_LIMIT_POSTFIX_FIND_BY_ID;
-
-            // Check if the request is allowed
-            if (!rateLimitService.isAllowed(RATE_LIMIT_KEY, MAX_REQUESTS, DURATION, TIME_UNIT)) {
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                    .body(new CustomHttpResponse(HttpStatus.TOO_MANY_REQUESTS.value(), 
-                    "Too many requests", null));
-            }
-
             // Return department by id
             return ResponseEntity.status(HttpStatus.OK)
                 .body(new CustomHttpResponse(HttpStatus.OK.value(), 
@@ -123,21 +134,12 @@ public class DepartmentController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<CustomHttpResponse> update(@PathVariable("id") String id, @RequestBody UpdateDepartmentRequestDTO departmentDTO, HttpServletRequest request) {
+    @RateLimited(name = "update-department", limit = 5)
+    public ResponseEntity<CustomHttpResponse> update(@PathVariable("id") String id, @RequestBody UpdateDepartmentRequestDTO departmentDTO) {
         Assert.notNull(id, "Id cannot be null");
         Assert.notNull(departmentDTO, "DepartmentDTO cannot be null");
 
         try {
-            // Use the client unique identifier if available, e.g., user ID
-            final String RATE_LIMIT_KEY = request.getRemoteAddr() + RATE_LIMIT_POSTFIX_UPDATE;
-
-            // Check if the request is allowed
-            if (!rateLimitService.isAllowed(RATE_LIMIT_KEY, MAX_REQUESTS, DURATION, TIME_UNIT)) {
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                    .body(new CustomHttpResponse(HttpStatus.TOO_MANY_REQUESTS.value(), 
-                    "Too many requests", null));
-            }
-
             // Update department & return response
             return ResponseEntity.status(HttpStatus.OK)
                 .body(new CustomHttpResponse(HttpStatus.OK.value(), 
@@ -150,21 +152,11 @@ public class DepartmentController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<CustomHttpResponse> delete(@PathVariable("id") String id,
-        HttpServletRequest request) {
+    @RateLimited(name = "delete-department", limit = 5)
+    public ResponseEntity<CustomHttpResponse> delete(@PathVariable("id") String id) {
         Assert.notNull(id, "Id cannot be null");
 
         try {
-            // Use the client unique identifier if available, e.g., user ID
-            final String RATE_LIMIT_KEY = request.getRemoteAddr() + RATE_LIMIT_POSTFIX_DELETE;
-
-            // Check if the request is allowed
-            if (!rateLimitService.isAllowed(RATE_LIMIT_KEY, MAX_REQUESTS, DURATION, TIME_UNIT)) {
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                    .body(new CustomHttpResponse(HttpStatus.TOO_MANY_REQUESTS.value(), 
-                    "Too many requests", null));
-            }
-
             // Delete department
             departmentService.delete(id);
 
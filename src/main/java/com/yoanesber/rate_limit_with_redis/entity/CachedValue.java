@@ -0,0 +1,11 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CachedValue<T> {
+    private final T value; // Cached value, null when the key is missing
+    private final long ttlMillis; // Remaining time to live, -1 when the key never expires, -2 when it is missing
+}
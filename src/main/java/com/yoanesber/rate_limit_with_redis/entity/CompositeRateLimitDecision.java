@@ -0,0 +1,20 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import lombok.Getter;
+
+/*
+ * Decision of a composite rate limit check, reported for its binding dimension:
+ * the dimension that denied the request (with the longest wait when several did),
+ * or when allowed the dimension with the fewest remaining requests.
+ */
+@Getter
+public class CompositeRateLimitDecision extends RateLimitDecision {
+    private final String dimension;
+    private final int limit; // Limit of the binding dimension
+
+    public CompositeRateLimitDecision(boolean allowed, long remaining, long resetAfterMillis, String dimension, int limit) {
+        super(allowed, remaining, resetAfterMillis);
+        this.dimension = dimension;
+        this.limit = limit;
+    }
+}
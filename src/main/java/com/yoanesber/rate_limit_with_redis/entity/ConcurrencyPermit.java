@@ -0,0 +1,24 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * In-flight slot taken by a request, or the reason it was refused.
+ * A granted permit must be released once the request completes.
+ */
+@Getter
+@AllArgsConstructor
+public class ConcurrencyPermit {
+    private final boolean acquired;
+    private final String deniedBy; // Limit reached: "key", "route" or "node"; null when acquired
+    private final String id;
+    private final String route;
+    private final List<String> leaseKeys; // Redis sorted sets holding the slot; empty when only held locally
+    private final long acquiredAtNanos;
+
+    public static ConcurrencyPermit denied(String route, String deniedBy) {
+        return new ConcurrencyPermit(false, deniedBy, null, route, List.of(), 0);
+    }
+}
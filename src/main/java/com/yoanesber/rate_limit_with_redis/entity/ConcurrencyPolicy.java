@@ -0,0 +1,18 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import com.yoanesber.rate_limit_with_redis.resolver.RateLimitKeyResolver;
+
+/*
+ * Concurrency limit settings of a handler method, resolved once from its @ConcurrencyLimited annotation.
+ */
+@Getter
+@AllArgsConstructor
+public class ConcurrencyPolicy {
+    private final String route; // Route name, e.g. "find-all-departments"
+    private final RateLimitKeyResolver keyResolver;
+    private final int limit; // In-flight requests per client
+    private final int globalLimit; // In-flight requests on the route, 0 for no limit
+}
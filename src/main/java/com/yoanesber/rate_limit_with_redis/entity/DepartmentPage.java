@@ -0,0 +1,17 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * One page of departments in id order, for keyset pagination.
+ * The next page starts after the last id of this one, so a page costs an index range scan
+ * however deep it is, and rows inserted or deleted meanwhile never shift the following pages.
+ */
+@Getter
+@AllArgsConstructor
+public class DepartmentPage {
+    private final List<Department> items;
+    private final String nextCursor; // Id to pass as "after" for the next page, null on the last page
+}
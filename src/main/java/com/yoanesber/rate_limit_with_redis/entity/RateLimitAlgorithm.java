@@ -0,0 +1,18 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+public enum RateLimitAlgorithm {
+    // Counter reset at fixed intervals; cheapest, but allows up to 2x the limit across a window boundary
+    FIXED_WINDOW,
+
+    // Current counter plus the previous window's counter weighted by its overlap; one small hash per key
+    SLIDING_WINDOW_COUNTER,
+
+    // Exact timestamps of admitted requests in a sorted set; precise, but one entry per request per key
+    SLIDING_WINDOW_LOG,
+
+    // Bucket refilled continuously at limit / window; allows bursts up to the limit
+    TOKEN_BUCKET,
+
+    // Generic Cell Rate Algorithm; evenly spaced requests, a single number stored per key
+    GCRA
+}
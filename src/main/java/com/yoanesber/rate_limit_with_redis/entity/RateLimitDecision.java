@@ -0,0 +1,24 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitDecision {
+    private boolean allowed;
+    private long remaining;
+    private long resetAfterMillis; // Time until the quota resets, or until the next request is allowed when denied
+
+    // Build a decision from a rate limit script reply: { allowed (1/0), remaining, reset after millis }
+    public static RateLimitDecision fromScriptResult(List<Long> result) {
+        return new RateLimitDecision(result.get(0) == 1L, result.get(1), result.get(2));
+    }
+}
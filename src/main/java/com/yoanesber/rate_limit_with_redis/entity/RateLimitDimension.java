@@ -0,0 +1,17 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * One of the limits checked together by a composite rate limit check,
+ * e.g. { "tenant", "acme", 1000 per minute } or { "global", "global", 5000 per second }.
+ */
+@Getter
+@AllArgsConstructor
+public class RateLimitDimension {
+    private final String name; // Reported when this dimension denies a request, e.g. "ip", "tenant"
+    private final String key; // Client identifier within the dimension, e.g. the IP address
+    private final int limit;
+    private final long windowMillis;
+}
@@ -0,0 +1,12 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+public enum RateLimitFailureMode {
+    // Admit every request while Redis is unavailable; availability over protection
+    FAIL_OPEN,
+
+    // Deny every request while Redis is unavailable; protection over availability
+    FAIL_CLOSED,
+
+    // Enforce the limit per node in-process, each node admitting its share of the limit
+    LOCAL
+}
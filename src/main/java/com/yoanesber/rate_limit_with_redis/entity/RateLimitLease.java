@@ -0,0 +1,24 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitLease {
+    private long granted; // Requests reserved for local admission, 0 when the quota is exhausted
+    private long remaining; // Requests still available in Redis after the lease
+    private long resetAfterMillis; // Time until the window resets and the lease expires
+
+    // Build a lease from a lease script reply: { granted, remaining, reset after millis }
+    public static RateLimitLease fromScriptResult(List<Long> result) {
+        return new RateLimitLease(result.get(0), result.get(1), result.get(2));
+    }
+}
@@ -0,0 +1,26 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import com.yoanesber.rate_limit_with_redis.resolver.RateLimitKeyResolver;
+
+/*
+ * Rate limit settings of a handler method, resolved once from its @RateLimited annotation.
+ * The quota from the annotation applies unless the policy registry overrides it for the route.
+ * A route limited along several dimensions has one policy per dimension; their quotas are looked
+ * up in the registry under "<route>-<dimension>", e.g. "find-all-departments-tenant".
+ */
+@Getter
+@AllArgsConstructor
+public class RateLimitPolicy {
+    private final String route; // Route name used to look up configured quotas, e.g. "find-all-departments"
+    private final String dimension; // Dimension limited by this policy, e.g. "ip"
+    private final String quotaRoute; // Route under which configured quotas are looked up
+    private final RateLimitRouteQuotas quotas; // Configured quotas of the quota route by client tier
+    private final String keySuffix; // Appended to the client key, e.g. ".find-all-departments"
+    private final RateLimitKeyResolver keyResolver;
+    private final RateLimitQuota defaultQuota;
+    private final int cost; // Permits charged before the handler runs
+    private final int rowsPerPermit; // Rows of the response per permit, 0 when the cost is static
+}
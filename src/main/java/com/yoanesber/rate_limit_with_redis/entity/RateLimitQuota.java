@@ -0,0 +1,16 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Limit, window and algorithm applied to a route for one client tier.
+ * Immutable so that a resolved snapshot of quotas can be shared between threads.
+ */
+@Getter
+@AllArgsConstructor
+public class RateLimitQuota {
+    private final int limit;
+    private final long windowMillis;
+    private final RateLimitAlgorithm algorithm;
+}
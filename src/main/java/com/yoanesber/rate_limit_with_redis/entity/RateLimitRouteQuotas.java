@@ -0,0 +1,28 @@
+package com.yoanesber.rate_limit_with_redis.entity;
+
+import java.util.Map;
+
+/*
+ * Configured quotas of one route by client tier, resolved once per handler method.
+ * The map holds every known tier with the route's "default" tier already applied to the tiers
+ * the route does not configure, so a lookup is a single probe.
+ * The policy service swaps the map on every reload, so an instance cached with a policy stays current.
+ */
+public class RateLimitRouteQuotas {
+
+    private volatile Map<String, RateLimitQuota> quotasByTier;
+
+    public RateLimitRouteQuotas(Map<String, RateLimitQuota> quotasByTier) {
+        this.quotasByTier = quotasByTier;
+    }
+
+    // Quota of a client tier, or the given quota when the route configures none for it
+    public RateLimitQuota resolve(String tier, RateLimitQuota defaultQuota) {
+        return quotasByTier.getOrDefault(tier, defaultQuota);
+    }
+
+    // Replace the quotas with the ones of a new policy snapshot
+    public void update(Map<String, RateLimitQuota> quotasByTier) {
+        this.quotasByTier = quotasByTier;
+    }
+}
@@ -0,0 +1,128 @@
+package com.yoanesber.rate_limit_with_redis.interceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.yoanesber.rate_limit_with_redis.annotation.ConcurrencyLimited;
+import com.yoanesber.rate_limit_with_redis.entity.ConcurrencyPermit;
+import com.yoanesber.rate_limit_with_redis.entity.ConcurrencyPolicy;
+import com.yoanesber.rate_limit_with_redis.entity.CustomHttpResponse;
+import com.yoanesber.rate_limit_with_redis.service.ConcurrencyLimitService;
+
+/*
+ * Enforces @ConcurrencyLimited on controller methods.
+ * preHandle takes an in-flight slot before the handler runs, and afterCompletion gives it back
+ * once the response is complete, whatever the outcome of the handler.
+ * Registered after RateLimitInterceptor, so requests refused by the rate limit never take a slot.
+ * The policy of each handler method is resolved from its annotation once and cached.
+ */
+@Component
+@Slf4j
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    // Slots free up as soon as a running request completes; a short retry is enough
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    // Cached marker for handler methods without @ConcurrencyLimited
+    private static final ConcurrencyPolicy NO_POLICY = new ConcurrencyPolicy(null, null, 0, 0);
+
+    private final Map<Method, ConcurrencyPolicy> policies = new ConcurrentHashMap<>();
+    private final ConcurrencyLimitService concurrencyLimitService;
+    private final ApplicationContext applicationContext;
+    private final ObjectMapper objectMapper;
+
+    public ConcurrencyLimitInterceptor(ConcurrencyLimitService concurrencyLimitService,
+        ApplicationContext applicationContext, ObjectMapper objectMapper) {
+        this.concurrencyLimitService = concurrencyLimitService;
+        this.applicationContext = applicationContext;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+
+        ConcurrencyPolicy policy = resolvePolicy(handlerMethod);
+        if (policy == NO_POLICY) {
+            return true;
+        }
+
+        try {
+            ConcurrencyPermit permit = concurrencyLimitService.tryAcquire(policy.getRoute(),
+                policy.getKeyResolver().resolve(request), policy.getLimit(), policy.getGlobalLimit());
+
+            if (permit.isAcquired()) {
+                request.setAttribute(PERMIT_ATTRIBUTE, permit);
+                return true;
+            }
+
+            // Tell which limit was reached: the client's ("key"), the route's ("route") or this node's ("node")
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            writeResponse(response, HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent requests", permit.getDeniedBy());
+            return false;
+        } catch (Exception e) {
+            log.error("An error occurred while checking concurrency limit for: {}", request.getRequestURI(), e);
+            writeResponse(response, HttpStatus.INTERNAL_SERVER_ERROR,
+                "An error occurred while checking concurrency limit", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof ConcurrencyPermit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            concurrencyLimitService.release(permit);
+        }
+    }
+
+    private ConcurrencyPolicy resolvePolicy(HandlerMethod handlerMethod) {
+        ConcurrencyPolicy policy = policies.get(handlerMethod.getMethod());
+        if (policy == null) {
+            policy = policies.computeIfAbsent(handlerMethod.getMethod(), method -> createPolicy(handlerMethod));
+        }
+
+        return policy;
+    }
+
+    private ConcurrencyPolicy createPolicy(HandlerMethod handlerMethod) {
+        ConcurrencyLimited concurrencyLimited = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), ConcurrencyLimited.class);
+        if (concurrencyLimited == null) {
+            concurrencyLimited = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), ConcurrencyLimited.class);
+        }
+
+        if (concurrencyLimited == null) {
+            return NO_POLICY;
+        }
+
+        String name = concurrencyLimited.name().isEmpty() ? handlerMethod.getMethod().getName() : concurrencyLimited.name();
+
+        return new ConcurrencyPolicy(name, applicationContext.getBean(concurrencyLimited.keyResolver()),
+            concurrencyLimited.limit(), concurrencyLimited.globalLimit());
+    }
+
+    private void writeResponse(HttpServletResponse response, HttpStatus status, String message, Object data) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new CustomHttpResponse(status.value(), message, data));
+    }
+}
@@ -0,0 +1,49 @@
+package com.yoanesber.rate_limit_with_redis.interceptor;
+
+import java.util.Collection;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import com.yoanesber.rate_limit_with_redis.entity.CustomHttpResponse;
+import com.yoanesber.rate_limit_with_redis.entity.DepartmentPage;
+
+/*
+ * Counts the rows of a response whose rate limit cost depends on them, e.g. the departments
+ * returned by findAll, for RateLimitInterceptor to settle once the response is written.
+ * Only requests with a pending settlement are inspected; the rows are the items of a DepartmentPage
+ * or the size of a collection, in the data of a CustomHttpResponse or as the body itself.
+ */
+@ControllerAdvice
+public class RateLimitCostAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+        Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)
+            || servletRequest.getServletRequest().getAttribute(RateLimitInterceptor.SETTLEMENT_ATTRIBUTE) == null) {
+            return body;
+        }
+
+        Object data = body instanceof CustomHttpResponse customHttpResponse ? customHttpResponse.getData() : body;
+        if (data instanceof DepartmentPage page) {
+            data = page.getItems();
+        }
+
+        if (data instanceof Collection<?> rows) {
+            servletRequest.getServletRequest().setAttribute(RateLimitInterceptor.ROWS_ATTRIBUTE, rows.size());
+        }
+
+        return body;
+    }
+}
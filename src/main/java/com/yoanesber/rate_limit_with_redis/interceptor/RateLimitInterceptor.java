@@ -0,0 +1,202 @@
+package com.yoanesber.rate_limit_with_redis.interceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import com.yoanesber.rate_limit_with_redis.entity.CompositeRateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.CustomHttpResponse;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDimension;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitPolicy;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitQuota;
+import com.yoanesber.rate_limit_with_redis.metrics.RateLimitMetrics;
+import com.yoanesber.rate_limit_with_redis.resolver.RateLimitPolicyResolver;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitPolicyService;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitService;
+
+/*
+ * Enforces @RateLimited on controller methods.
+ * preHandle runs before the handler adapter resolves the method arguments, so throttled
+ * requests are rejected before their body is deserialized and before the controller runs.
+ * The policy of each handler method is resolved from its annotation once and cached,
+ * so the hot path only resolves the client key and makes a single call to Redis.
+ * A method with several @RateLimited annotations is checked along all of them in that single call.
+ *
+ * A request is charged the cost of its policy up front. When the cost depends on the rows of the
+ * response, RateLimitCostAdvice records them while the body is written, and afterCompletion charges
+ * the permits above the up-front cost once the response has been flushed to the client.
+ */
+@Component
+@Slf4j
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    // Rate limit headers (IETF draft "RateLimit header fields for HTTP")
+    private static final String HEADER_LIMIT = "RateLimit-Limit";
+    private static final String HEADER_REMAINING = "RateLimit-Remaining";
+    private static final String HEADER_RESET = "RateLimit-Reset";
+
+    // Identifies the client tier in the policy registry, with the authenticated user and the IP address
+    private static final String API_KEY_HEADER = "X-API-Key";
+
+    // Request attributes shared with RateLimitCostAdvice
+    static final String SETTLEMENT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".settlement";
+    static final String ROWS_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".rows";
+
+    private final RateLimitService rateLimitService;
+    private final RateLimitPolicyService rateLimitPolicyService;
+    private final RateLimitPolicyResolver rateLimitPolicyResolver;
+    private final RateLimitMetrics rateLimitMetrics;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitInterceptor(RateLimitService rateLimitService, RateLimitPolicyService rateLimitPolicyService,
+        RateLimitPolicyResolver rateLimitPolicyResolver, RateLimitMetrics rateLimitMetrics, ObjectMapper objectMapper) {
+        this.rateLimitService = rateLimitService;
+        this.rateLimitPolicyService = rateLimitPolicyService;
+        this.rateLimitPolicyResolver = rateLimitPolicyResolver;
+        this.rateLimitMetrics = rateLimitMetrics;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+
+        List<RateLimitPolicy> policies = rateLimitPolicyResolver.resolve(handlerMethod);
+        if (policies.isEmpty()) {
+            return true;
+        }
+
+        RateLimitPolicy policy = policies.get(0);
+        RateLimitAlgorithm algorithm = policies.size() == 1 ? policy.getDefaultQuota().getAlgorithm() : RateLimitAlgorithm.GCRA;
+        try {
+            // Resolved once per request and shared by every dimension
+            String tier = rateLimitPolicyService.resolveTier(request.getHeader(API_KEY_HEADER),
+                request.getRemoteUser(), request.getRemoteAddr());
+            RateLimitDecision decision;
+            int limit;
+
+            if (policies.size() == 1) {
+                // Use the client unique identifier, e.g., IP address or API key
+                String rateLimitKey = policy.getKeyResolver().resolve(request) + policy.getKeySuffix();
+
+                // Quotas configured for the route and the client tier override the annotation
+                RateLimitQuota quota = policy.getQuotas().resolve(tier, policy.getDefaultQuota());
+                algorithm = quota.getAlgorithm();
+                limit = quota.getLimit();
+
+                // Check if the request is allowed, charging its up-front cost
+                decision = rateLimitService.check(rateLimitKey, quota.getLimit(),
+                    quota.getWindowMillis(), TimeUnit.MILLISECONDS, quota.getAlgorithm(), policy.getCost());
+
+                if (decision.isAllowed() && policy.getRowsPerPermit() > 0) {
+                    request.setAttribute(SETTLEMENT_ATTRIBUTE, new Settlement(rateLimitKey, quota, policy));
+                }
+            } else {
+                // Check every dimension at once; the decision reports the binding one
+                CompositeRateLimitDecision composite = rateLimitService.checkAll(policy.getRoute(),
+                    dimensions(policies, request, tier));
+                limit = composite.getLimit();
+                decision = composite;
+            }
+
+            rateLimitMetrics.recordDecision(policy.getRoute(), algorithm,
+                decision.isAllowed() ? RateLimitMetrics.Outcome.ALLOWED : RateLimitMetrics.Outcome.DENIED);
+
+            // Tell the client its quota so it can back off precisely instead of retrying blindly
+            long resetSeconds = toSeconds(decision.getResetAfterMillis());
+            response.setHeader(HEADER_LIMIT, String.valueOf(limit));
+            response.setHeader(HEADER_REMAINING, String.valueOf(decision.getRemaining()));
+            response.setHeader(HEADER_RESET, String.valueOf(resetSeconds));
+
+            if (decision.isAllowed()) {
+                return true;
+            }
+
+            // A composite limit also tells which dimension denied the request, e.g. "tenant"
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(resetSeconds));
+            writeResponse(response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests",
+                decision instanceof CompositeRateLimitDecision composite ? composite.getDimension() : null);
+            return false;
+        } catch (Exception e) {
+            rateLimitMetrics.recordDecision(policy.getRoute(), algorithm, RateLimitMetrics.Outcome.ERROR);
+            log.error("An error occurred while checking rate limit for: {}", request.getRequestURI(), e);
+            writeResponse(response, HttpStatus.INTERNAL_SERVER_ERROR,
+                "An error occurred while checking rate limit", e.getMessage());
+            return false;
+        }
+    }
+
+    // Charge the permits of the response rows beyond the up-front cost
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex)
+        throws IOException {
+        if (ex != null || !(request.getAttribute(SETTLEMENT_ATTRIBUTE) instanceof Settlement settlement)
+            || !(request.getAttribute(ROWS_ATTRIBUTE) instanceof Integer rows)) {
+            return;
+        }
+
+        long permits = (rows + (long) settlement.rowsPerPermit - 1) / settlement.rowsPerPermit;
+        if (permits <= settlement.prepaid) {
+            return;
+        }
+
+        // Do not keep the client waiting for the extra round trip
+        response.flushBuffer();
+        rateLimitService.settle(settlement.key, settlement.quota.getLimit(), settlement.quota.getWindowMillis(),
+            TimeUnit.MILLISECONDS, settlement.quota.getAlgorithm(), (int) Math.min(permits - settlement.prepaid, Integer.MAX_VALUE));
+    }
+
+    // Key and quota of every dimension of a composite limit
+    private List<RateLimitDimension> dimensions(List<RateLimitPolicy> policies, HttpServletRequest request, String tier) {
+        List<RateLimitDimension> dimensions = new ArrayList<>(policies.size());
+        for (RateLimitPolicy policy : policies) {
+            RateLimitQuota quota = policy.getQuotas().resolve(tier, policy.getDefaultQuota());
+            dimensions.add(new RateLimitDimension(policy.getDimension(), policy.getKeyResolver().resolve(request),
+                quota.getLimit(), quota.getWindowMillis()));
+        }
+
+        return dimensions;
+    }
+
+    // Headers carry whole seconds; round up so clients never retry before the quota resets
+    private static long toSeconds(long millis) {
+        return (millis + 999) / 1000;
+    }
+
+    private void writeResponse(HttpServletResponse response, HttpStatus status, String message, Object data) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new CustomHttpResponse(status.value(), message, data));
+    }
+
+    // Quota charged by preHandle, kept on the request until the response rows are known
+    private static final class Settlement {
+        private final String key;
+        private final RateLimitQuota quota;
+        private final int prepaid;
+        private final int rowsPerPermit;
+
+        private Settlement(String key, RateLimitQuota quota, RateLimitPolicy policy) {
+            this.key = key;
+            this.quota = quota;
+            this.prepaid = policy.getCost();
+            this.rowsPerPermit = policy.getRowsPerPermit();
+        }
+    }
+}
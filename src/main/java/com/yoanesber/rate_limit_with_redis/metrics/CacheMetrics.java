@@ -0,0 +1,70 @@
+package com.yoanesber.rate_limit_with_redis.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.stereotype.Component;
+
+/*
+ * Meters of the cache, tagged by keyspace (the TTL keyspaces, e.g. department, department-list):
+ * * cache.lookups{keyspace, outcome}: "near-hit" (in-JVM near cache), "hit" (Redis),
+ *   "negative-hit" (key known to be missing) or "miss" (not in Redis, loaded from the database)
+ * * cache.loads{keyspace}: time to load a key from the database, with a percentile histogram
+ * The hit ratio of a keyspace is the share of near-hit and hit among its lookups.
+ * Meters are registered on first use, so recording does not allocate.
+ */
+@Component
+public class CacheMetrics {
+
+    public enum Outcome {
+        NEAR_HIT, HIT, NEGATIVE_HIT, MISS;
+
+        private final String tag = name().toLowerCase().replace('_', '-');
+    }
+
+    private static final String LOOKUPS = "cache.lookups";
+    private static final String LOADS = "cache.loads";
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicReferenceArray<Counter>> lookupCounters = new ConcurrentHashMap<>(); // By keyspace
+    private final Map<String, Timer> loadTimers = new ConcurrentHashMap<>(); // By keyspace
+
+    public CacheMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordLookup(String keyspace, Outcome outcome) {
+        AtomicReferenceArray<Counter> counters = lookupCounters.get(keyspace);
+        if (counters == null) {
+            counters = lookupCounters.computeIfAbsent(keyspace, k -> new AtomicReferenceArray<>(OUTCOMES.length));
+        }
+
+        Counter counter = counters.get(outcome.ordinal());
+        if (counter == null) {
+            counter = Counter.builder(LOOKUPS)
+                .tag("keyspace", keyspace)
+                .tag("outcome", outcome.tag)
+                .register(meterRegistry);
+            counters.set(outcome.ordinal(), counter);
+        }
+
+        counter.increment();
+    }
+
+    public void recordLoad(String keyspace, long millis) {
+        Timer timer = loadTimers.get(keyspace);
+        if (timer == null) {
+            timer = loadTimers.computeIfAbsent(keyspace, k -> Timer.builder(LOADS)
+                .tag("keyspace", k)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        }
+
+        timer.record(millis, TimeUnit.MILLISECONDS);
+    }
+}
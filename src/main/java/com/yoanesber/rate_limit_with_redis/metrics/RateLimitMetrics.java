@@ -0,0 +1,81 @@
+package com.yoanesber.rate_limit_with_redis.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitFailureMode;
+
+/*
+ * Meters of the rate limiter. Tags only take bounded values (never the client key):
+ * * rate.limit.requests{route, algorithm, outcome}: decisions per @RateLimited route,
+ *   outcome "allowed", "denied" or "error"
+ * * rate.limit.fallback.requests{mode, outcome}: decisions taken without Redis by RateLimitFallback
+ * Counters are registered on first use and then looked up in arrays indexed by enum ordinals,
+ * so recording a decision does not allocate and can stay on under full load.
+ */
+@Component
+public class RateLimitMetrics {
+
+    public enum Outcome {
+        ALLOWED, DENIED, ERROR;
+
+        private final String tag = name().toLowerCase();
+    }
+
+    private static final String REQUESTS = "rate.limit.requests";
+    private static final String FALLBACK_REQUESTS = "rate.limit.fallback.requests";
+    private static final RateLimitAlgorithm[] ALGORITHMS = RateLimitAlgorithm.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicReferenceArray<Counter>> requestCounters = new ConcurrentHashMap<>(); // By route
+    private final AtomicReferenceArray<Counter> fallbackCounters =
+        new AtomicReferenceArray<>(RateLimitFailureMode.values().length * OUTCOMES.length);
+
+    public RateLimitMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void recordDecision(String route, RateLimitAlgorithm algorithm, Outcome outcome) {
+        AtomicReferenceArray<Counter> counters = requestCounters.get(route);
+        if (counters == null) {
+            counters = requestCounters.computeIfAbsent(route,
+                r -> new AtomicReferenceArray<>(ALGORITHMS.length * OUTCOMES.length));
+        }
+
+        int index = algorithm.ordinal() * OUTCOMES.length + outcome.ordinal();
+        Counter counter = counters.get(index);
+        if (counter == null) {
+            // Registering an existing meter returns it, so a race only costs a lookup
+            counter = Counter.builder(REQUESTS)
+                .tag("route", route)
+                .tag("algorithm", algorithm.name())
+                .tag("outcome", outcome.tag)
+                .register(meterRegistry);
+            counters.set(index, counter);
+        }
+
+        counter.increment();
+    }
+
+    public void recordFallback(RateLimitFailureMode mode, boolean allowed) {
+        Outcome outcome = allowed ? Outcome.ALLOWED : Outcome.DENIED;
+        int index = mode.ordinal() * OUTCOMES.length + outcome.ordinal();
+
+        Counter counter = fallbackCounters.get(index);
+        if (counter == null) {
+            counter = Counter.builder(FALLBACK_REQUESTS)
+                .tag("mode", mode.name())
+                .tag("outcome", outcome.tag)
+                .register(meterRegistry);
+            fallbackCounters.set(index, counter);
+        }
+
+        counter.increment();
+    }
+}
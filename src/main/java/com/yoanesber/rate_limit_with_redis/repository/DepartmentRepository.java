@@ -1,11 +1,28 @@
 package com.yoanesber.rate_limit_with_redis.repository;
 
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.yoanesber.rate_limit_with_redis.entity.Department;
 
 @Repository
 public interface DepartmentRepository extends JpaRepository<Department, String> {
-    
+    // First page of departments in id order
+    List<Department> findAllByOrderByIdAsc(Limit limit);
+
+    // Page of departments following the given id in id order (keyset pagination on the primary key)
+    List<Department> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    // Every department in id order, fetched from a database cursor in batches; must run in a transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Department> streamAllByOrderByIdAsc();
 }
@@ -0,0 +1,22 @@
+package com.yoanesber.rate_limit_with_redis.resolver;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ApiKeyKeyResolver implements RateLimitKeyResolver {
+
+    private static final String API_KEY_HEADER = "X-API-Key";
+
+    // Use the API key when the client sends one, otherwise fall back to the client IP address
+    @Override
+    public String resolve(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        return (apiKey == null || apiKey.isBlank()) ? request.getRemoteAddr() : apiKey;
+    }
+
+    @Override
+    public String dimension() {
+        return "api-key";
+    }
+}
@@ -0,0 +1,21 @@
+package com.yoanesber.rate_limit_with_redis.resolver;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+// Same key for every client: the limit is a ceiling on the route as a whole, e.g. to protect the database
+@Component
+public class GlobalKeyResolver implements RateLimitKeyResolver {
+
+    private static final String GLOBAL_KEY = "global";
+
+    @Override
+    public String resolve(HttpServletRequest request) {
+        return GLOBAL_KEY;
+    }
+
+    @Override
+    public String dimension() {
+        return "global";
+    }
+}
@@ -0,0 +1,11 @@
+package com.yoanesber.rate_limit_with_redis.resolver;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+public interface RateLimitKeyResolver {
+    // Resolve the identifier of the client making the request
+    String resolve(HttpServletRequest request);
+
+    // Name of the dimension limited by this resolver in a composite check, e.g. "ip" or "tenant"
+    String dimension();
+}
@@ -0,0 +1,85 @@
+package com.yoanesber.rate_limit_with_redis.resolver;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.method.HandlerMethod;
+
+import com.yoanesber.rate_limit_with_redis.annotation.RateLimited;
+import com.yoanesber.rate_limit_with_redis.annotation.RateLimits;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitPolicy;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitQuota;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitPolicyService;
+
+/*
+ * Resolves the rate limit policies of a handler method from its @RateLimited annotations,
+ * or from its controller's annotations.
+ * A method has one policy per @RateLimited annotation; several policies are checked together
+ * as the dimensions of a composite limit.
+ * Policies are resolved once per handler method and cached, unannotated methods included,
+ * together with the configured quotas of their route.
+ */
+@Component
+public class RateLimitPolicyResolver {
+
+    private final Map<Method, List<RateLimitPolicy>> policies = new ConcurrentHashMap<>();
+    private final ApplicationContext applicationContext;
+    private final RateLimitPolicyService rateLimitPolicyService;
+
+    public RateLimitPolicyResolver(ApplicationContext applicationContext, RateLimitPolicyService rateLimitPolicyService) {
+        this.applicationContext = applicationContext;
+        this.rateLimitPolicyService = rateLimitPolicyService;
+    }
+
+    // Policies of a handler method, empty when it is not rate limited
+    public List<RateLimitPolicy> resolve(HandlerMethod handlerMethod) {
+        List<RateLimitPolicy> resolved = policies.get(handlerMethod.getMethod());
+        if (resolved == null) {
+            resolved = policies.computeIfAbsent(handlerMethod.getMethod(), method -> createPolicies(handlerMethod));
+        }
+
+        return resolved;
+    }
+
+    private List<RateLimitPolicy> createPolicies(HandlerMethod handlerMethod) {
+        Set<RateLimited> annotations = AnnotatedElementUtils.findMergedRepeatableAnnotations(
+            handlerMethod.getMethod(), RateLimited.class, RateLimits.class);
+        if (annotations.isEmpty()) {
+            annotations = AnnotatedElementUtils.findMergedRepeatableAnnotations(
+                handlerMethod.getBeanType(), RateLimited.class, RateLimits.class);
+        }
+
+        List<RateLimitPolicy> created = new ArrayList<>(annotations.size());
+        for (RateLimited rateLimited : annotations) {
+            // The dimensions of a composite limit share the route name of the first annotation
+            String name = created.isEmpty() ? routeName(handlerMethod, rateLimited) : created.get(0).getRoute();
+            created.add(createPolicy(name, rateLimited, annotations.size() > 1));
+        }
+
+        return List.copyOf(created);
+    }
+
+    private static String routeName(HandlerMethod handlerMethod, RateLimited rateLimited) {
+        return rateLimited.name().isEmpty() ? handlerMethod.getMethod().getName() : rateLimited.name();
+    }
+
+    private RateLimitPolicy createPolicy(String name, RateLimited rateLimited, boolean composite) {
+        Assert.isTrue(rateLimited.cost() > 0, "Cost must be greater than 0");
+        Assert.isTrue(rateLimited.rowsPerPermit() >= 0, "Rows per permit cannot be negative");
+
+        RateLimitKeyResolver keyResolver = applicationContext.getBean(rateLimited.keyResolver());
+        String dimension = rateLimited.dimension().isEmpty() ? keyResolver.dimension() : rateLimited.dimension();
+
+        String quotaRoute = composite ? name + "-" + dimension : name;
+        return new RateLimitPolicy(name, dimension, quotaRoute, rateLimitPolicyService.routeQuotas(quotaRoute), "." + name, keyResolver,
+            new RateLimitQuota(rateLimited.limit(), rateLimited.unit().toMillis(rateLimited.window()), rateLimited.algorithm()),
+            composite ? 1 : rateLimited.cost(), composite ? 0 : rateLimited.rowsPerPermit());
+    }
+}
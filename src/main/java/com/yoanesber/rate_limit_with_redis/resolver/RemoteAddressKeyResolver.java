@@ -0,0 +1,18 @@
+package com.yoanesber.rate_limit_with_redis.resolver;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RemoteAddressKeyResolver implements RateLimitKeyResolver {
+
+    @Override
+    public String resolve(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+
+    @Override
+    public String dimension() {
+        return "ip";
+    }
+}
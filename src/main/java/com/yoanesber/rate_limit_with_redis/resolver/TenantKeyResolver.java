@@ -0,0 +1,22 @@
+package com.yoanesber.rate_limit_with_redis.resolver;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TenantKeyResolver implements RateLimitKeyResolver {
+
+    private static final String TENANT_HEADER = "X-Tenant-ID";
+
+    // Use the tenant when the client sends one, otherwise fall back to the client IP address
+    @Override
+    public String resolve(HttpServletRequest request) {
+        String tenant = request.getHeader(TENANT_HEADER);
+        return (tenant == null || tenant.isBlank()) ? request.getRemoteAddr() : tenant;
+    }
+
+    @Override
+    public String dimension() {
+        return "tenant";
+    }
+}
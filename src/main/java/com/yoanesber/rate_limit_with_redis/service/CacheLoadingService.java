@@ -0,0 +1,22 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.yoanesber.rate_limit_with_redis.entity.CachedValue;
+
+public interface CacheLoadingService {
+    // Read a key from Redis; on a miss load and write it once per key across threads and nodes,
+    // and refresh it early with a probability growing as it approaches its expiration.
+    // A key the loader did not find is remembered as missing for the negative TTL.
+    // Lookups and loads are recorded under the keyspace of the key
+    <T> T getOrLoad(String keyspace, String key, Supplier<CachedValue<T>> reader, Supplier<T> loader, Consumer<T> writer);
+
+    // Same, with loads fenced by the updates of another key, for keys the updates cannot name
+    // (e.g. the cached pages of a list, whose updates only know the index of the pages)
+    <T> T getOrLoad(String keyspace, String key, String fenceKey, Supplier<CachedValue<T>> reader, Supplier<T> loader, Consumer<T> writer);
+
+    // Queue the start of an update of a key on a write batch, before the writes of the update:
+    // loads of the key still in flight drop what they write, and the key is no longer remembered as missing
+    void beginUpdate(String key, RedisWriteBatch writes);
+}
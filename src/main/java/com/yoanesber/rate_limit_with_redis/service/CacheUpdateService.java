@@ -0,0 +1,9 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+import java.util.function.Consumer;
+
+public interface CacheUpdateService {
+    // Apply a cache update asynchronously once the current transaction has committed, by queuing
+    // its writes on a batch sent with other updates; a pending update of the same key is replaced by the newer one
+    void submitAfterCommit(String key, Consumer<RedisWriteBatch> update);
+}
@@ -0,0 +1,11 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+import com.yoanesber.rate_limit_with_redis.entity.ConcurrencyPermit;
+
+public interface ConcurrencyLimitService {
+    // Take an in-flight slot for a client key on a route; the permit tells which limit refused it otherwise
+    ConcurrencyPermit tryAcquire(String route, String key, int limit, int globalLimit);
+
+    // Give back the slot of a completed request; its latency drives the adaptive limit
+    void release(ConcurrencyPermit permit);
+}
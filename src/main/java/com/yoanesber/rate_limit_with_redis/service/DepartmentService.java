@@ -1,8 +1,10 @@
 package com.yoanesber.rate_limit_with_redis.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.yoanesber.rate_limit_with_redis.entity.Department;
+import com.yoanesber.rate_limit_with_redis.entity.DepartmentPage;
 
 public interface DepartmentService {
     // Save a department to the database
@@ -14,6 +16,13 @@ public interface DepartmentService {
     // Find all departments
     List<Department> findAll();
 
+    // Find up to size departments following the given id in id order, from the first one when after is null;
+    // size must be between 1 and 1000
+    DepartmentPage findPage(String after, int size);
+
+    // Pass every department in id order to the action, one at a time, without loading them all in memory
+    void streamAll(Consumer<Department> action);
+
     // Update a department
     Department update(String id, Department department);
 
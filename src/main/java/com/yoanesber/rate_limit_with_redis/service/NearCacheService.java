@@ -0,0 +1,18 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+public interface NearCacheService {
+    // Retrieve a value from the in-JVM cache, or null when it is missing or expired
+    <T> T get(String key, Class<T> clazz);
+
+    // Current invalidation version, taken before reading the value that will be cached
+    long version();
+
+    // Cache a value unless the cache was invalidated since the given version was taken
+    void put(String key, Object value, long version);
+
+    // Invalidate a key on this node and publish the invalidation to every other node
+    void invalidate(String key);
+
+    // Invalidate a key on this node and queue its invalidation for every node on a write batch
+    void invalidate(String key, RedisWriteBatch writes);
+}
@@ -0,0 +1,15 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitRouteQuotas;
+
+public interface RateLimitPolicyService {
+    // Configured quotas of a route by client tier, kept current across reloads; meant to be resolved once per handler
+    RateLimitRouteQuotas routeQuotas(String route);
+
+    // Resolve the tier of a client by its API key, then its authenticated user, then its IP address;
+    // any of them may be null, and a client matching none is in the "default" tier
+    String resolveTier(String apiKey, String user, String remoteAddress);
+
+    // Rebuild the quota snapshot from configuration and the Redis policy hashes
+    void reload();
+}
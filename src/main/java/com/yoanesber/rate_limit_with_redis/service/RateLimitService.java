@@ -1,8 +1,28 @@
 package com.yoanesber.rate_limit_with_redis.service;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import com.yoanesber.rate_limit_with_redis.entity.CompositeRateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDimension;
+
 public interface RateLimitService {
-    // Check if a key is allowed to make a request
-    boolean isAllowed(String key, int maxRequests, long duration, TimeUnit unit);
+    // Consume a request for a key using the fixed window algorithm and return the decision
+    RateLimitDecision check(String key, int maxRequests, long duration, TimeUnit unit);
+
+    // Consume a request for a key using the given algorithm and return the decision
+    RateLimitDecision check(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm);
+
+    // Consume several permits for a key at once, e.g. for a costly request, and return the decision
+    RateLimitDecision check(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm, int permits);
+
+    // Charge permits for a key after its request was served, even beyond the limit,
+    // so the following requests of the key pay for a cost only known from the response
+    void settle(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm, int permits);
+
+    // Consume a request from every dimension of a route at once, only if all of them allow it,
+    // and return the decision of the binding dimension
+    CompositeRateLimitDecision checkAll(String route, List<RateLimitDimension> dimensions);
 }
@@ -0,0 +1,37 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+import reactor.core.publisher.Mono;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitLease;
+
+public interface RateLimitStrategy {
+    // The algorithm implemented by this strategy
+    RateLimitAlgorithm getAlgorithm();
+
+    // Consume one request for a key and decide atomically whether it is allowed
+    default RateLimitDecision evaluate(String key, int maxRequests, long windowMillis) {
+        return evaluate(key, maxRequests, windowMillis, 1);
+    }
+
+    // Consume several permits for a key at once, only if all of them are available
+    RateLimitDecision evaluate(String key, int maxRequests, long windowMillis, int permits);
+
+    // Same as evaluate with permits, without blocking: the script runs on the given reactive client
+    Mono<RateLimitDecision> evaluateReactive(ReactiveRedisService reactiveRedisService, String key, int maxRequests,
+        long windowMillis, int permits);
+
+    // Consume permits for a key even beyond the limit, to charge a request that was already served
+    void settle(String key, int maxRequests, long windowMillis, int permits);
+
+    // Whether the strategy can reserve several requests at once for local admission
+    default boolean supportsLeasing() {
+        return false;
+    }
+
+    // Reserve up to leaseSize requests for a key in one round trip
+    default RateLimitLease lease(String key, int maxRequests, long windowMillis, int leaseSize) {
+        throw new UnsupportedOperationException(getAlgorithm() + " does not support leasing");
+    }
+}
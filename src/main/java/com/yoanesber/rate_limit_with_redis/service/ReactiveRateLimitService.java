@@ -0,0 +1,15 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+import java.util.concurrent.TimeUnit;
+import reactor.core.publisher.Mono;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+
+public interface ReactiveRateLimitService {
+    // Consume a request for a key using the given algorithm and emit the decision, without blocking
+    Mono<RateLimitDecision> check(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm);
+
+    // Consume several permits for a key at once and emit the decision, without blocking
+    Mono<RateLimitDecision> check(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm, int permits);
+}
@@ -0,0 +1,11 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+import java.util.List;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveRedisService {
+    // Execute a Lua script atomically on the Redis server (EVALSHA, falling back to EVAL), without blocking;
+    // a multi-bulk reply is emitted element by element
+    <T> Flux<T> executeScript(RedisScript<T> script, List<String> keys, Object... args);
+}
@@ -2,24 +2,61 @@ package com.yoanesber.rate_limit_with_redis.service;
 
 import java.util.concurrent.TimeUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.yoanesber.rate_limit_with_redis.entity.CachedValue;
 
 public interface RedisService {
     // Save a key-value pair to Redis with an optional expiration time
     boolean set(String key, Object value, long timeout, TimeUnit unit);
 
-    // Save a list to Redis with an optional expiration time
+    // Save several key-value pairs to Redis in one round trip with an optional expiration time
+    boolean multiSet(Map<String, ?> entries, long timeout, TimeUnit unit);
+
+    // Atomically replace a list in Redis with an optional expiration time
     boolean setList(String key, List<?> list, long timeout, TimeUnit unit);
 
+    // Atomically replace a hash in Redis with the given entries with an optional expiration time
+    boolean setHash(String key, Map<String, ?> entries, long timeout, TimeUnit unit);
+
+    // Set a field of a hash in Redis only if the hash exists
+    boolean putHashEntryIfExists(String key, String field, Object value);
+
+    // Delete a field of a hash in Redis
+    boolean deleteHashEntry(String key, String field);
+
     // Retrieve a value from Redis by key
     Object get(String key, Class<?> clazz);
 
+    // Retrieve a value together with its remaining time to live in one round trip
+    <T> CachedValue<T> getWithTtl(String key, Class<T> clazz);
+
+    // Retrieve several values from Redis in one round trip; missing keys are returned as null
+    <T> List<T> multiGet(List<String> keys, Class<T> clazz);
+
     // Retrieve a list from Redis by key
     <T> List<T> getList(String key, Class<T> clazz);
 
-    // Retrieve all keys from Redis by pattern
+    // Retrieve all entries of a hash from Redis by key
+    <T> Map<String, T> getHash(String key, Class<T> clazz);
+
+    // Retrieve all entries of a hash together with its remaining time to live in one round trip
+    <T> CachedValue<Map<String, T>> getHashWithTtl(String key, Class<T> clazz);
+
+    // Retrieve all keys from Redis containing a pattern (incrementally with SCAN, never KEYS)
     Set<String> getKeysContaining(String pattern);
 
+    // Lazily iterate the keys matching a glob pattern with SCAN; the stream must be closed
+    Stream<String> scanKeys(String pattern, long count);
+
+    // Delete the keys matching a glob pattern in batches of UNLINK; returns the number of keys deleted
+    long deleteKeysMatching(String pattern, int batchSize);
+
     // Delete a key from Redis
     boolean delete(String key);
 
@@ -29,6 +66,30 @@ public interface RedisService {
     // Set an expiration time for a key in Redis
     void expire(String key, long timeout, TimeUnit unit);
 
+    // Acquire a lock held under a key until it is released or expires; returns false when it is already held
+    boolean tryLock(String key, String token, long timeout, TimeUnit unit);
+
+    // Release a lock, only if it is still held with the given token
+    boolean unlock(String key, String token);
+
     // Increment a key in Redis by a value
     Long increment(String key, long value);
+
+    // Add a member to a sorted set in Redis, or update its score
+    boolean addToSortedSet(String key, String member, double score);
+
+    // Read a counter written by increment, without writing to it; 0 when the key does not exist
+    long getCounter(String key);
+
+    // Publish a plain string message on a Redis channel
+    void publish(String channel, String message);
+
+    // Execute several commands in one round trip and return their results in order
+    List<Object> executePipelined(SessionCallback<?> session);
+
+    // Queue writes on a batch and send them in one pipeline; fails if any of them fails
+    void executeBatch(Consumer<RedisWriteBatch> writes);
+
+    // Execute a Lua script atomically on the Redis server (EVALSHA, falling back to EVAL)
+    <T> T executeScript(RedisScript<T> script, List<String> keys, Object... args);
 }
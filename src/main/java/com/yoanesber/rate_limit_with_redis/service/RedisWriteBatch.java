@@ -0,0 +1,35 @@
+package com.yoanesber.rate_limit_with_redis.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.List;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/*
+ * Writes queued by RedisService.executeBatch and sent to Redis in one pipeline, in order.
+ * Replies are only read once the batch is complete, so no result is returned to the caller.
+ */
+public interface RedisWriteBatch {
+    // Save a key-value pair with an optional expiration time
+    void set(String key, Object value, long timeout, TimeUnit unit);
+
+    // Set a field of a hash only if the hash exists
+    void putHashEntryIfExists(String key, String field, Object value);
+
+    // Delete a field of a hash
+    void deleteHashEntry(String key, String field);
+
+    // Delete a key
+    void delete(String key);
+
+    // Increment a key by a value
+    void increment(String key, long value);
+
+    // Set an expiration time for a key
+    void expire(String key, long timeout, TimeUnit unit);
+
+    // Publish a plain string message on a channel
+    void publish(String channel, String message);
+
+    // Execute a Lua script atomically on the Redis server (EVAL)
+    void executeScript(RedisScript<?> script, List<String> keys, Object... args);
+}
@@ -0,0 +1,61 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.List;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitStrategy;
+import com.yoanesber.rate_limit_with_redis.service.ReactiveRedisService;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.util.RedisKeys;
+
+/*
+ * Base class for rate limit strategies that run as a single Lua script on the Redis server.
+ * Each script takes the key in KEYS[1], the limit, the window in milliseconds, the permits consumed
+ * and a settle flag in ARGV, and replies with { allowed (1/0), remaining, reset after millis }.
+ * A settle call consumes the permits even beyond the limit, so a request charged after it was served
+ * is paid for by the following requests of the key.
+ * Every algorithm uses its own key prefix so that switching the algorithm of an endpoint
+ * never reads a key written with a different data type. The client key is the hash tag,
+ * e.g. "rate-limit:tb:{10.0.0.1.find-all-departments}", so keys spread across cluster shards.
+ */
+public abstract class AbstractScriptRateLimitStrategy implements RateLimitStrategy {
+
+    private final RedisService redisService;
+    private final RedisScript<List<Long>> script;
+    private final String keyPrefix;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected AbstractScriptRateLimitStrategy(RedisService redisService, String scriptLocation, String keyPrefix) {
+        this.redisService = redisService;
+        this.script = (RedisScript) RedisScript.of(new ClassPathResource(scriptLocation), List.class);
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public RateLimitDecision evaluate(String key, int maxRequests, long windowMillis, int permits) {
+        List<Long> result = redisService.executeScript(script, List.of(RedisKeys.tagged(keyPrefix, key)),
+            maxRequests, windowMillis, permits, 0);
+        return RateLimitDecision.fromScriptResult(result);
+    }
+
+    @Override
+    public Mono<RateLimitDecision> evaluateReactive(ReactiveRedisService reactiveRedisService, String key, int maxRequests,
+        long windowMillis, int permits) {
+        // The reply is emitted element by element, collect it back into { allowed, remaining, reset after millis }
+        Flux<?> reply = reactiveRedisService.executeScript(script, List.of(RedisKeys.tagged(keyPrefix, key)),
+            maxRequests, windowMillis, permits, 0);
+        return reply.cast(Long.class)
+            .collectList()
+            .map(RateLimitDecision::fromScriptResult);
+    }
+
+    @Override
+    public void settle(String key, int maxRequests, long windowMillis, int permits) {
+        redisService.executeScript(script, List.of(RedisKeys.tagged(keyPrefix, key)), maxRequests, windowMillis, permits, 1);
+    }
+}
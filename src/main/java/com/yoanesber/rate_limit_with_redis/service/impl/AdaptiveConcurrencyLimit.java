@@ -0,0 +1,59 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * In-process semaphore of one route, whose size can change while permits are held.
+ * With AIMD enabled, the size follows the observed latency, like TCP congestion control:
+ * it grows by about one permit per limit-worth of fast requests (additive increase),
+ * and shrinks by the backoff ratio on every slow request (multiplicative decrease).
+ * Updates are lock-free; nothing here blocks or pins a virtual thread.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits; // Current limit, as the bits of a double
+
+    AdaptiveConcurrencyLimit(double initialLimit) {
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+    }
+
+    // Take a permit unless maxLimit or the adaptive limit, if enabled, is reached
+    boolean tryAcquire(int maxLimit, boolean adaptive) {
+        int limit = adaptive ? (int) Math.min(limit(), maxLimit) : maxLimit;
+
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    // Adjust the limit to the latency of a completed request
+    void onSample(long latencyMillis, long thresholdMillis, double backoffRatio, int minLimit, int maxLimit) {
+        limitBits.updateAndGet(bits -> {
+            double limit = Double.longBitsToDouble(bits);
+            double next = latencyMillis > thresholdMillis
+                ? Math.max(minLimit, limit * backoffRatio)
+                : Math.min(maxLimit, limit + 1 / limit);
+            return Double.doubleToLongBits(next);
+        });
+    }
+
+    double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
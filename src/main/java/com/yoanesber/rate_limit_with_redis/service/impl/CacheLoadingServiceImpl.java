@@ -0,0 +1,300 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.yoanesber.rate_limit_with_redis.entity.CachedValue;
+import com.yoanesber.rate_limit_with_redis.metrics.CacheMetrics;
+import com.yoanesber.rate_limit_with_redis.service.CacheLoadingService;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.service.RedisWriteBatch;
+import com.yoanesber.rate_limit_with_redis.util.RedisKeys;
+
+/*
+ * Protects the database from cache stampedes, i.e. every request rebuilding the same
+ * missing key at once after a Redis restart or an expiration.
+ * 1. Single flight: within this JVM only one thread loads a key, the others wait for its result.
+ * 2. Rebuild lock: across nodes only the holder of a short-lived lock in Redis (SET NX PX) loads
+ *    the key; the other nodes poll Redis until the key is written, and only load it themselves
+ *    if that takes longer than cache.rebuild.lock-wait-ms.
+ * 3. Early refresh (XFetch): a hit on a key with a TTL is refreshed before it expires with a
+ *    probability growing as the expiration gets closer and as the load gets slower,
+ *    so hot keys are rebuilt by a single request instead of expiring under load.
+ *    The time to load each key is measured locally; cache.rebuild.early-refresh-beta > 1
+ *    favours earlier refreshes, 0 disables them.
+ * 4. Negative caching: a key the loader did not find is marked as missing under
+ *    missing:{key} for cache.negative-ttl, so lookups of unknown ids stop reaching the database.
+ * 5. Update fencing: every update of a key increments its version under {key}:version before
+ *    writing. A load reads the version of its fence key (the key itself by default) before
+ *    querying the database and again after writing; if it changed, the load may have read the
+ *    database before the update committed, so what it wrote (value or missing marker) is
+ *    deleted and the next lookup loads the key again.
+ *    Updates write after their version increment, so an update the second read does not see
+ *    overwrites the load. Versions expire after cache.rebuild.version-ttl-ms without updates,
+ *    which must stay well above the longest load.
+ */
+@Service
+@Slf4j
+public class CacheLoadingServiceImpl implements CacheLoadingService {
+
+    private static final String LOCK_KEY_PREFIX = "rebuild-lock:";
+    private static final String MISSING_KEY_PREFIX = "missing:";
+    private static final String VERSION_KEY_SUFFIX = ":version";
+    private static final long DEFAULT_LOAD_MILLIS = 100; // Assumed load time of keys not loaded yet by this node
+
+    @Value("${cache.rebuild.lock-timeout-ms:5000}")
+    private long lockTimeoutMillis;
+
+    @Value("${cache.rebuild.lock-wait-ms:2000}")
+    private long lockWaitMillis;
+
+    @Value("${cache.rebuild.retry-interval-ms:50}")
+    private long retryIntervalMillis;
+
+    @Value("${cache.rebuild.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+
+    @Value("${cache.rebuild.version-ttl-ms:600000}")
+    private long versionTtlMillis;
+
+    @Value("${cache.rebuild.max-tracked-keys:10000}")
+    private int maxTrackedKeys;
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Long> loadMillis = new ConcurrentHashMap<>(); // Last measured load time per key
+    private final RedisService redisService;
+    private final CacheTtlPolicy cacheTtlPolicy;
+    private final CacheMetrics cacheMetrics;
+
+    public CacheLoadingServiceImpl(RedisService redisService, CacheTtlPolicy cacheTtlPolicy, CacheMetrics cacheMetrics) {
+        this.redisService = redisService;
+        this.cacheTtlPolicy = cacheTtlPolicy;
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    @Override
+    public <T> T getOrLoad(String keyspace, String key, Supplier<CachedValue<T>> reader, Supplier<T> loader, Consumer<T> writer) {
+        return getOrLoad(keyspace, key, key, reader, loader, writer);
+    }
+
+    @Override
+    public <T> T getOrLoad(String keyspace, String key, String fenceKey, Supplier<CachedValue<T>> reader, Supplier<T> loader, Consumer<T> writer) {
+        Assert.notNull(keyspace, "Keyspace cannot be null");
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(fenceKey, "Fence key cannot be null");
+        Assert.notNull(reader, "Reader cannot be null");
+        Assert.notNull(loader, "Loader cannot be null");
+        Assert.notNull(writer, "Writer cannot be null");
+
+        CachedValue<T> cached = reader.get();
+        if (cached.getValue() == null) {
+            // Only misses pay for the lookup of the missing marker
+            if (redisService.exists(MISSING_KEY_PREFIX + key)) {
+                cacheMetrics.recordLookup(keyspace, CacheMetrics.Outcome.NEGATIVE_HIT);
+                return null;
+            }
+
+            cacheMetrics.recordLookup(keyspace, CacheMetrics.Outcome.MISS);
+            return loadSingleFlight(keyspace, key, fenceKey, reader, loader, writer);
+        }
+
+        cacheMetrics.recordLookup(keyspace, CacheMetrics.Outcome.HIT);
+        if (shouldRefreshEarly(key, cached.getTtlMillis())) {
+            return refreshEarly(keyspace, key, fenceKey, cached.getValue(), loader, writer);
+        }
+
+        return cached.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T loadSingleFlight(String keyspace, String key, String fenceKey, Supplier<CachedValue<T>> reader, Supplier<T> loader, Consumer<T> writer) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return (T) await(existing);
+        }
+
+        try {
+            T value = loadOnce(keyspace, key, fenceKey, reader, loader, writer);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private <T> T loadOnce(String keyspace, String key, String fenceKey, Supplier<CachedValue<T>> reader, Supplier<T> loader, Consumer<T> writer) {
+        String lockKey = LOCK_KEY_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        long deadline = System.currentTimeMillis() + lockWaitMillis;
+
+        while (!redisService.tryLock(lockKey, token, lockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            // Another node is rebuilding the key; wait for its result instead of querying the database too
+            if (System.currentTimeMillis() >= deadline) {
+                if (redisService.exists(MISSING_KEY_PREFIX + key)) {
+                    return null;
+                }
+
+                log.warn("Timed out waiting for the rebuild of key: {}", key);
+                return loader.get();
+            }
+
+            sleep(retryIntervalMillis);
+
+            // The other node either cached the value or found that it does not exist
+            CachedValue<T> cached = reader.get();
+            if (cached.getValue() != null) {
+                return cached.getValue();
+            }
+            if (redisService.exists(MISSING_KEY_PREFIX + key)) {
+                return null;
+            }
+        }
+
+        try {
+            // The key may have been rebuilt, or found missing, by another node between the miss and the lock
+            CachedValue<T> cached = reader.get();
+            if (cached.getValue() != null) {
+                return cached.getValue();
+            }
+            if (redisService.exists(MISSING_KEY_PREFIX + key)) {
+                return null;
+            }
+
+            return loadAndWrite(keyspace, key, fenceKey, loader, writer);
+        } finally {
+            redisService.unlock(lockKey, token);
+        }
+    }
+
+    // Refresh a key still in Redis; requests that do not win the refresh keep using the cached value
+    private <T> T refreshEarly(String keyspace, String key, String fenceKey, T cachedValue, Supplier<T> loader, Consumer<T> writer) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return cachedValue;
+        }
+
+        String lockKey = LOCK_KEY_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+
+        try {
+            if (!redisService.tryLock(lockKey, token, lockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                future.complete(cachedValue);
+                return cachedValue;
+            }
+
+            try {
+                T value = loadAndWrite(keyspace, key, fenceKey, loader, writer);
+                future.complete(value);
+                return value;
+            } finally {
+                redisService.unlock(lockKey, token);
+            }
+        } catch (RuntimeException e) {
+            // The cached value is still valid, a failed refresh is retried by a later request
+            log.warn("Could not refresh key early: {}", key, e);
+            future.complete(cachedValue);
+            return cachedValue;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private <T> T loadAndWrite(String keyspace, String key, String fenceKey, Supplier<T> loader, Consumer<T> writer) {
+        String versionKey = versionKey(fenceKey);
+        long version = redisService.getCounter(versionKey);
+
+        long start = System.currentTimeMillis();
+        T value = loader.get();
+        long elapsedMillis = System.currentTimeMillis() - start;
+        recordLoadMillis(key, elapsedMillis);
+        cacheMetrics.recordLoad(keyspace, elapsedMillis);
+
+        if (value != null) {
+            writer.accept(value);
+        } else {
+            long negativeTtlMillis = cacheTtlPolicy.negativeTtlMillis();
+            if (negativeTtlMillis > 0) {
+                redisService.set(MISSING_KEY_PREFIX + key, Boolean.TRUE, negativeTtlMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // An update of the key began while it was loading; do not leave a value that may predate it
+        if (redisService.getCounter(versionKey) != version) {
+            log.debug("Key was updated while loading, dropping the loaded value: {}", key);
+            redisService.delete(value != null ? key : MISSING_KEY_PREFIX + key);
+        }
+
+        return value;
+    }
+
+    @Override
+    public void beginUpdate(String key, RedisWriteBatch writes) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(writes, "Writes cannot be null");
+
+        String versionKey = versionKey(key);
+        writes.increment(versionKey, 1);
+        writes.expire(versionKey, versionTtlMillis, TimeUnit.MILLISECONDS);
+        writes.delete(MISSING_KEY_PREFIX + key);
+    }
+
+    private static String versionKey(String key) {
+        return RedisKeys.sameSlot(key, VERSION_KEY_SUFFIX);
+    }
+
+    /*
+     * XFetch: refresh when -loadMillis * beta * ln(random) >= ttl.
+     * -ln(random) is exponentially distributed, so the probability of a refresh is
+     * negligible while the TTL is large compared to the load time and rises to 1 at expiration.
+     */
+    private boolean shouldRefreshEarly(String key, long ttlMillis) {
+        if (ttlMillis <= 0 || earlyRefreshBeta <= 0) {
+            return false;
+        }
+
+        long delta = loadMillis.getOrDefault(key, DEFAULT_LOAD_MILLIS);
+        return -delta * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble()) >= ttlMillis;
+    }
+
+    // Load times are only tracked for a bounded number of keys, the others use the default
+    private void recordLoadMillis(String key, long millis) {
+        if (loadMillis.size() < maxTrackedKeys || loadMillis.containsKey(key)) {
+            loadMillis.put(key, Math.max(millis, 1));
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the rebuild of a key");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.yoanesber.rate_limit_with_redis.config.CacheProperties;
+
+/*
+ * Computes the time to live of every cached key from CacheProperties.
+ * A random jitter of +/- ttl-jitter is applied to every TTL, so a burst of writes
+ * does not turn into a burst of synchronized expirations and database reloads later.
+ */
+@Component
+public class CacheTtlPolicy {
+
+    private final CacheProperties cacheProperties;
+
+    public CacheTtlPolicy(CacheProperties cacheProperties) {
+        this.cacheProperties = cacheProperties;
+    }
+
+    // Time to live of a key of the given keyspace, in milliseconds
+    public long ttlMillis(String keyspace) {
+        Assert.notNull(keyspace, "Keyspace cannot be null");
+        return withJitter(cacheProperties.getTtl().getOrDefault(keyspace, cacheProperties.getDefaultTtl()));
+    }
+
+    // Longest time to live a key of the given keyspace can get with the jitter, in milliseconds
+    public long maxTtlMillis(String keyspace) {
+        Assert.notNull(keyspace, "Keyspace cannot be null");
+        long millis = cacheProperties.getTtl().getOrDefault(keyspace, cacheProperties.getDefaultTtl()).toMillis();
+        double jitter = Math.min(Math.max(cacheProperties.getTtlJitter(), 0), 1);
+        return (long) Math.ceil(millis * (1 + jitter));
+    }
+
+    // Time to live of the marker remembering that a key does not exist, in milliseconds
+    public long negativeTtlMillis() {
+        return withJitter(cacheProperties.getNegativeTtl());
+    }
+
+    private long withJitter(Duration ttl) {
+        long millis = ttl.toMillis();
+        double jitter = Math.min(Math.max(cacheProperties.getTtlJitter(), 0), 1);
+        if (millis <= 0 || jitter == 0) {
+            return millis;
+        }
+
+        double factor = 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Math.max(1, (long) (millis * factor));
+    }
+}
@@ -0,0 +1,245 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import com.yoanesber.rate_limit_with_redis.service.CacheUpdateService;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.service.RedisWriteBatch;
+
+/*
+ * Write-behind pipeline for cache updates.
+ * Updates are registered as after-commit callbacks, so a transaction never holds its database
+ * connection across Redis I/O and a rolled back write never reaches the cache.
+ * After the commit, updates are queued and applied in batches by a background worker:
+ * 1. Coalescing: the queue keeps one pending update per key, a newer update replaces the
+ *    pending one in place, so a burst of writes to the same key costs a single cache update.
+ * 2. Backpressure: the queue is bounded by cache.write-behind.queue-capacity; when it is full
+ *    the committing thread waits for the worker to make room, with a warning after offer-timeout-ms.
+ *    It never applies its update itself while the worker may still be applying an older one.
+ * 3. Pipelining: the updates of a batch queue their writes on one RedisWriteBatch, sent to Redis
+ *    in a single pipeline, so a batch of up to batch-size updates costs one round trip.
+ * A failed batch is logged and dropped; the stale keys expire with their TTL.
+ * The worker is a virtual thread when spring.threads.virtual.enabled is set, like the request threads.
+ */
+@Service
+@Slf4j
+public class CacheUpdateServiceImpl implements CacheUpdateService {
+
+    @Value("${cache.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${cache.write-behind.batch-size:100}")
+    private int batchSize;
+
+    @Value("${cache.write-behind.offer-timeout-ms:100}")
+    private long offerTimeoutMillis;
+
+    @Value("${cache.write-behind.shutdown-timeout-ms:5000}")
+    private long shutdownTimeoutMillis;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final RedisService redisService;
+    private final Map<String, Consumer<RedisWriteBatch>> pending = new LinkedHashMap<>(); // Guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private volatile boolean running;
+    private boolean drained; // Set once the stopped worker has applied every queued update; guarded by lock
+    private Thread worker;
+
+    public CacheUpdateServiceImpl(RedisService redisService) {
+        this.redisService = redisService;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        worker = builder.name("cache-write-behind").start(this::drain);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+
+        // Let the worker apply what is still queued before the connections close
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        worker.join(shutdownTimeoutMillis);
+    }
+
+    @Override
+    public void submitAfterCommit(String key, Consumer<RedisWriteBatch> update) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(update, "Update cannot be null");
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(key, update);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(key, update);
+            }
+        });
+    }
+
+    /*
+     * An update is only applied in the caller when no worker is left to apply an earlier update of
+     * the same key: with write-behind disabled, or once the worker has drained the queue and exited.
+     * Otherwise it always goes through the queue, which the worker applies in order, so a caller
+     * never overtakes an update of its key that the worker is still applying.
+     */
+    private void enqueue(String key, Consumer<RedisWriteBatch> update) {
+        if (worker == null) {
+            apply(List.of(Map.entry(key, update)));
+            return;
+        }
+
+        boolean queued;
+        lock.lock();
+        try {
+            queued = offer(key, update);
+        } finally {
+            lock.unlock();
+        }
+
+        if (!queued) {
+            apply(List.of(Map.entry(key, update)));
+        }
+    }
+
+    // Queue an update, waiting for the worker to make room when the queue is full; false once the worker
+    // has drained the queue and exited. Called with the lock held
+    private boolean offer(String key, Consumer<RedisWriteBatch> update) {
+        if (drained) {
+            return false;
+        }
+
+        if (pending.containsKey(key)) {
+            pending.put(key, update);
+            return true;
+        }
+
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+            while (pending.size() >= queueCapacity && nanos > 0) {
+                nanos = notFull.awaitNanos(nanos);
+            }
+
+            if (pending.size() >= queueCapacity) {
+                log.warn("Cache update queue is full, waiting to queue the update of key: {}", key);
+                while (pending.size() >= queueCapacity) {
+                    notFull.await();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Queue it beyond the capacity rather than losing it or applying it out of order
+            Thread.currentThread().interrupt();
+        }
+
+        if (drained) {
+            return false;
+        }
+
+        pending.put(key, update);
+        notEmpty.signal();
+        return true;
+    }
+
+    private void drain() {
+        boolean interrupted = false;
+        while (true) {
+            List<Map.Entry<String, Consumer<RedisWriteBatch>>> batch;
+            try {
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                // Stop waiting for new updates, but still apply the queued ones so none is lost
+                interrupted = true;
+                running = false;
+                continue;
+            }
+
+            if (batch.isEmpty()) {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return;
+            }
+
+            apply(batch);
+        }
+    }
+
+    // Wait for pending updates and take up to batch-size of them; empty once stopped and drained
+    private List<Map.Entry<String, Consumer<RedisWriteBatch>>> takeBatch() throws InterruptedException {
+        lock.lock();
+        try {
+            while (pending.isEmpty() && running) {
+                notEmpty.await();
+            }
+
+            if (pending.isEmpty()) {
+                // Stopped and drained: the updates submitted from now on are applied by their caller
+                drained = true;
+            }
+
+            List<Map.Entry<String, Consumer<RedisWriteBatch>>> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<Map.Entry<String, Consumer<RedisWriteBatch>>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                Map.Entry<String, Consumer<RedisWriteBatch>> entry = iterator.next();
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+                iterator.remove();
+            }
+
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Send the writes of all the updates in one pipeline, in the order the updates were queued
+    private void apply(List<Map.Entry<String, Consumer<RedisWriteBatch>>> updates) {
+        try {
+            redisService.executeBatch(writes -> updates.forEach(entry -> entry.getValue().accept(writes)));
+        } catch (Exception e) {
+            log.error("An error occurred while updating the cache of keys: {}",
+                updates.stream().map(Map.Entry::getKey).toList(), e);
+        }
+    }
+}
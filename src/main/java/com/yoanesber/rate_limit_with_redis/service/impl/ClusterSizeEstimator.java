@@ -0,0 +1,59 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+
+/*
+ * Estimates how many nodes share the rate limits, so that while Redis is unavailable each node
+ * can enforce its share of a limit locally. Every node records a heartbeat in the sorted set
+ * rate-limit:nodes; the number of nodes seen alive at the last successful heartbeat is kept
+ * and remains the estimate while Redis is down.
+ * rate-limit.fallback.cluster-size overrides the estimate when it is set (> 0).
+ */
+@Component
+@Slf4j
+public class ClusterSizeEstimator {
+
+    private static final String NODES_KEY = "rate-limit:nodes";
+    private static final RedisScript<Long> HEARTBEAT_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/node_heartbeat.lua"), Long.class);
+
+    @Value("${rate-limit.fallback.cluster-size:0}")
+    private int configuredClusterSize;
+
+    @Value("${rate-limit.fallback.heartbeat-interval-ms:10000}")
+    private long heartbeatIntervalMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RedisService redisService;
+    private volatile int estimatedClusterSize = 1;
+
+    public ClusterSizeEstimator(@Qualifier("rateLimitRedisService") RedisService redisService) {
+        this.redisService = redisService;
+    }
+
+    public int clusterSize() {
+        return configuredClusterSize > 0 ? configuredClusterSize : estimatedClusterSize;
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.fallback.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        try {
+            // A node missing three heartbeats in a row is considered gone
+            Long liveNodes = redisService.executeScript(HEARTBEAT_SCRIPT, List.of(NODES_KEY),
+                nodeId, 3 * heartbeatIntervalMillis);
+            estimatedClusterSize = (int) Math.max(1, liveNodes);
+        } catch (Exception e) {
+            log.debug("Could not record the node heartbeat, keeping cluster size {}", estimatedClusterSize, e);
+        }
+    }
+}
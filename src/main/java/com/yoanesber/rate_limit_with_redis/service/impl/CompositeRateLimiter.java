@@ -0,0 +1,138 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.entity.CompositeRateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDimension;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.util.RedisKeys;
+
+/*
+ * Checks the dimensions of a composite limit with the Lua script composite_gcra.lua, and only
+ * consumes quota when every limit allows the request.
+ * Each dimension key is tagged with the route and the client key of the dimension,
+ * e.g. "rate-limit:composite:{find-all-departments:10.0.0.1}:ip".
+ * 1. Standalone and Sentinel (redis.mode): all dimensions are checked by a single script call,
+ *    one round trip, atomically.
+ * 2. Cluster: a script can only touch keys of one cluster slot, so dimensions are grouped by
+ *    client key, hence by slot, and each group is checked by one script call. Dimensions of the
+ *    same client (e.g. "ip" and "api-key" falling back to the IP address) share a slot; dimensions
+ *    shared between clients (a tenant, or "global" for the whole route) get a slot of their own.
+ *    When a slot denies the request or fails, the slots that admitted it are refunded
+ *    (composite_gcra_refund.lua), so a request denied per IP does not use up the tenant quota.
+ *    Between the admission and the refund other requests may see the quota briefly lower, never
+ *    higher, than it really is.
+ */
+@Component
+@Slf4j
+public class CompositeRateLimiter {
+
+    private static final String KEY_PREFIX = "rate-limit:composite:";
+    private static final String MODE_CLUSTER = "cluster";
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisScript<List<Long>> SCRIPT =
+        (RedisScript) RedisScript.of(new ClassPathResource("scripts/composite_gcra.lua"), List.class);
+    private static final RedisScript<Long> REFUND_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/composite_gcra_refund.lua"), Long.class);
+
+    // Topology, as in RedisConfig: only a cluster splits the dimensions across slots
+    @Value("${redis.mode:standalone}")
+    private String redisMode;
+
+    private final RedisService redisService;
+
+    public CompositeRateLimiter(@Qualifier("rateLimitRedisService") RedisService redisService) {
+        this.redisService = redisService;
+    }
+
+    public CompositeRateLimitDecision evaluate(String route, List<RateLimitDimension> dimensions) {
+        if (!MODE_CLUSTER.equalsIgnoreCase(redisMode)) {
+            List<Long> result = redisService.executeScript(SCRIPT, keys(route, dimensions), arguments(dimensions));
+            return decision(result, dimensions);
+        }
+
+        List<List<RateLimitDimension>> admitted = new ArrayList<>();
+        CompositeRateLimitDecision decision = null;
+
+        try {
+            for (List<RateLimitDimension> slot : bySlot(dimensions)) {
+                CompositeRateLimitDecision slotDecision =
+                    decision(redisService.executeScript(SCRIPT, keys(route, slot), arguments(slot)), slot);
+
+                if (!slotDecision.isAllowed()) {
+                    refund(route, admitted);
+                    return slotDecision;
+                }
+
+                // Allowed: report the dimension with the fewest remaining requests across the slots
+                admitted.add(slot);
+                if (decision == null || slotDecision.getRemaining() < decision.getRemaining()) {
+                    decision = slotDecision;
+                }
+            }
+        } catch (RuntimeException e) {
+            // The fallback decides the request; give back what the slots already checked consumed
+            refund(route, admitted);
+            throw e;
+        }
+
+        return decision;
+    }
+
+    // Decision of a script reply, reported for the binding dimension among the dimensions checked
+    private static CompositeRateLimitDecision decision(List<Long> result, List<RateLimitDimension> dimensions) {
+        RateLimitDimension binding = dimensions.get(result.get(3).intValue() - 1);
+        return new CompositeRateLimitDecision(result.get(0) == 1L, result.get(1), result.get(2), binding.getName(), binding.getLimit());
+    }
+
+    // Give back the request to the slots that admitted it; a failed refund only leaves the quota lower
+    private void refund(String route, List<List<RateLimitDimension>> admitted) {
+        for (List<RateLimitDimension> slot : admitted) {
+            try {
+                redisService.executeScript(REFUND_SCRIPT, keys(route, slot), arguments(slot));
+            } catch (Exception e) {
+                log.warn("Could not refund the composite rate limit of route: {}: {}", route, e.getMessage());
+            }
+        }
+    }
+
+    // Dimensions grouped by client key, hence by hash tag, in the order of their first dimension
+    private static List<List<RateLimitDimension>> bySlot(List<RateLimitDimension> dimensions) {
+        Map<String, List<RateLimitDimension>> slots = new LinkedHashMap<>();
+        for (RateLimitDimension dimension : dimensions) {
+            slots.computeIfAbsent(dimension.getKey(), key -> new ArrayList<>()).add(dimension);
+        }
+
+        return new ArrayList<>(slots.values());
+    }
+
+    private static List<String> keys(String route, List<RateLimitDimension> dimensions) {
+        List<String> keys = new ArrayList<>(dimensions.size());
+        for (RateLimitDimension dimension : dimensions) {
+            keys.add(RedisKeys.tagged(KEY_PREFIX, route + ":" + dimension.getKey()) + ":" + dimension.getName());
+        }
+
+        return keys;
+    }
+
+    // Limit and window of each dimension, in the order of the keys
+    private static Object[] arguments(List<RateLimitDimension> dimensions) {
+        Object[] arguments = new Object[dimensions.size() * 2];
+        for (int i = 0; i < dimensions.size(); i++) {
+            arguments[2 * i] = dimensions.get(i).getLimit();
+            arguments[2 * i + 1] = dimensions.get(i).getWindowMillis();
+        }
+
+        return arguments;
+    }
+}
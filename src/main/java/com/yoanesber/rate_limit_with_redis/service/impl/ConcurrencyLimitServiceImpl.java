@@ -0,0 +1,199 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.yoanesber.rate_limit_with_redis.entity.ConcurrencyPermit;
+import com.yoanesber.rate_limit_with_redis.service.ConcurrencyLimitService;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.util.RedisKeys;
+
+/*
+ * Caps in-flight requests in two stages:
+ * 1. Local semaphore per route (AdaptiveConcurrencyLimit): this node admits at most its share of the
+ *    route limit, ceil(global limit / cluster size), and, with concurrency.adaptive.enabled, at most
+ *    the AIMD limit driven by the latency of the route's requests. A saturated node refuses requests
+ *    without a round trip to Redis.
+ * 2. Distributed counter in Redis (concurrency_acquire.lua): the slots of a client key and of the
+ *    route are leases in sorted sets, taken together in one atomic script. This node renews the
+ *    leases of its running requests every concurrency.renew-interval-ms, in pipelined batches; the leases of a crashed
+ *    node are not renewed and expire after concurrency.lease-ms, so its slots are never leaked.
+ * The keys of a route share its name as hash tag, e.g. "concurrency:{find-all-departments}:key:10.0.0.1",
+ * so the script stays on one cluster slot.
+ * While Redis is unavailable (see RateLimitCircuitBreaker) only the local semaphore applies.
+ */
+@Service
+@Slf4j
+public class ConcurrencyLimitServiceImpl implements ConcurrencyLimitService {
+
+    private static final String KEY_PREFIX = "concurrency:";
+    private static final int RENEW_BATCH_SIZE = 500; // Leases renewed per pipeline
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisScript<List<Long>> ACQUIRE_SCRIPT =
+        (RedisScript) RedisScript.of(new ClassPathResource("scripts/concurrency_acquire.lua"), List.class);
+    private static final RedisScript<Long> RENEW_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/concurrency_renew.lua"), Long.class);
+    private static final RedisScript<Long> RELEASE_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/concurrency_release.lua"), Long.class);
+
+    @Value("${concurrency.lease-ms:30000}")
+    private long leaseMillis;
+
+    @Value("${concurrency.adaptive.enabled:false}")
+    private boolean adaptive;
+
+    @Value("${concurrency.adaptive.latency-threshold-ms:500}")
+    private long latencyThresholdMillis;
+
+    @Value("${concurrency.adaptive.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${concurrency.adaptive.min-limit:1}")
+    private int minLimit;
+
+    @Value("${concurrency.adaptive.max-limit:100}")
+    private int maxLimit;
+
+    private final Map<String, AdaptiveConcurrencyLimit> localLimits = new ConcurrentHashMap<>(); // By route
+    private final Map<String, ConcurrencyPermit> heldPermits = new ConcurrentHashMap<>(); // Leases to renew, by id
+    private final RedisService redisService;
+    private final RateLimitCircuitBreaker circuitBreaker;
+    private final ClusterSizeEstimator clusterSizeEstimator;
+
+    public ConcurrencyLimitServiceImpl(@Qualifier("rateLimitRedisService") RedisService redisService,
+        RateLimitCircuitBreaker circuitBreaker, ClusterSizeEstimator clusterSizeEstimator) {
+        this.redisService = redisService;
+        this.circuitBreaker = circuitBreaker;
+        this.clusterSizeEstimator = clusterSizeEstimator;
+    }
+
+    @Override
+    public ConcurrencyPermit tryAcquire(String route, String key, int limit, int globalLimit) {
+        Assert.notNull(route, "Route cannot be null");
+        Assert.notNull(key, "Key cannot be null");
+        Assert.isTrue(limit > 0, "Limit must be greater than 0");
+        Assert.isTrue(globalLimit >= 0, "Global limit cannot be negative");
+
+        AdaptiveConcurrencyLimit localLimit = localLimit(route);
+        if (!localLimit.tryAcquire(nodeLimit(globalLimit), adaptive)) {
+            return ConcurrencyPermit.denied(route, "node");
+        }
+
+        String id = UUID.randomUUID().toString();
+        if (!circuitBreaker.allowRequest()) {
+            return new ConcurrencyPermit(true, null, id, route, List.of(), System.nanoTime());
+        }
+
+        String routeKey = RedisKeys.tagged(KEY_PREFIX, route);
+        String clientSlotsKey = routeKey + ":key:" + key;
+        String routeSlotsKey = routeKey + ":global";
+
+        try {
+            List<Long> result = redisService.executeScript(ACQUIRE_SCRIPT, List.of(clientSlotsKey, routeSlotsKey),
+                id, limit, globalLimit, leaseMillis);
+            circuitBreaker.recordSuccess();
+
+            if (result.get(0) != 1L) {
+                localLimit.release();
+                return ConcurrencyPermit.denied(route, result.get(1) == 1L ? "key" : "route");
+            }
+
+            // The route set only holds the slot when the route is limited
+            List<String> leaseKeys = globalLimit > 0 ? List.of(clientSlotsKey, routeSlotsKey) : List.of(clientSlotsKey);
+            ConcurrencyPermit permit = new ConcurrencyPermit(true, null, id, route, leaseKeys, System.nanoTime());
+            heldPermits.put(id, permit);
+            return permit;
+        } catch (Exception e) {
+            // Admitted by the local semaphore only
+            circuitBreaker.recordFailure();
+            log.warn("Concurrency limit check failed for route: {}, using the local limit: {}", route, e.getMessage());
+            return new ConcurrencyPermit(true, null, id, route, List.of(), System.nanoTime());
+        }
+    }
+
+    @Override
+    public void release(ConcurrencyPermit permit) {
+        Assert.notNull(permit, "Permit cannot be null");
+
+        if (!permit.isAcquired()) {
+            return;
+        }
+
+        AdaptiveConcurrencyLimit localLimit = localLimit(permit.getRoute());
+        localLimit.release();
+        if (adaptive) {
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - permit.getAcquiredAtNanos());
+            localLimit.onSample(latencyMillis, latencyThresholdMillis, backoffRatio, minLimit, maxLimit);
+        }
+
+        if (permit.getLeaseKeys().isEmpty() || heldPermits.remove(permit.getId()) == null) {
+            return;
+        }
+
+        try {
+            redisService.executeScript(RELEASE_SCRIPT, permit.getLeaseKeys(), permit.getId());
+        } catch (Exception e) {
+            // The slot is given back when its lease expires
+            log.warn("Could not release concurrency slot of route: {}: {}", permit.getRoute(), e.getMessage());
+        }
+    }
+
+    // Extend the leases of the requests still running on this node, one pipeline per batch of leases
+    @Scheduled(fixedDelayString = "${concurrency.renew-interval-ms:10000}")
+    public void renewLeases() {
+        List<ConcurrencyPermit> batch = new ArrayList<>(RENEW_BATCH_SIZE);
+        for (ConcurrencyPermit permit : heldPermits.values()) {
+            batch.add(permit);
+            if (batch.size() == RENEW_BATCH_SIZE) {
+                renew(batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            renew(batch);
+        }
+    }
+
+    private void renew(List<ConcurrencyPermit> permits) {
+        try {
+            redisService.executeBatch(writes -> permits.forEach(permit ->
+                writes.executeScript(RENEW_SCRIPT, permit.getLeaseKeys(), permit.getId(), leaseMillis)));
+        } catch (Exception e) {
+            // Leases not renewed in time expire, and their slots are given back
+            log.warn("Could not renew {} concurrency slots: {}", permits.size(), e.getMessage());
+        }
+    }
+
+    private AdaptiveConcurrencyLimit localLimit(String route) {
+        AdaptiveConcurrencyLimit localLimit = localLimits.get(route);
+        if (localLimit == null) {
+            localLimit = localLimits.computeIfAbsent(route, r -> new AdaptiveConcurrencyLimit(maxLimit));
+        }
+
+        return localLimit;
+    }
+
+    // Share of the route limit admitted by this node, unbounded without a route limit
+    private int nodeLimit(int globalLimit) {
+        if (globalLimit == 0) {
+            return adaptive ? maxLimit : Integer.MAX_VALUE;
+        }
+
+        int clusterSize = clusterSizeEstimator.clusterSize();
+        return (int) Math.max(1, (globalLimit + clusterSize - 1L) / clusterSize);
+    }
+}
@@ -1,31 +1,78 @@
 package com.yoanesber.rate_limit_with_redis.service.impl;
 
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import java.util.concurrent.TimeUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Limit;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 
+import com.yoanesber.rate_limit_with_redis.entity.CachedValue;
 import com.yoanesber.rate_limit_with_redis.entity.Department;
+import com.yoanesber.rate_limit_with_redis.entity.DepartmentPage;
+import com.yoanesber.rate_limit_with_redis.metrics.CacheMetrics;
 import com.yoanesber.rate_limit_with_redis.repository.DepartmentRepository;
+import com.yoanesber.rate_limit_with_redis.service.CacheLoadingService;
+import com.yoanesber.rate_limit_with_redis.service.CacheUpdateService;
 import com.yoanesber.rate_limit_with_redis.service.DepartmentService;
+import com.yoanesber.rate_limit_with_redis.service.NearCacheService;
 import com.yoanesber.rate_limit_with_redis.service.RedisService;
-
+import com.yoanesber.rate_limit_with_redis.service.RedisWriteBatch;
+import com.yoanesber.rate_limit_with_redis.util.RedisKeys;
+
+/*
+ * Reads go through the near cache and Redis without a transaction, so a cache hit never borrows
+ * a database connection; only the loader of a missing key runs in a short read-only transaction.
+ * Writes are transactional and update the caches after commit.
+ */
 @Service
 public class DepartmentServiceImpl implements DepartmentService {
 
     private final DepartmentRepository departmentRepository;
+    private final EntityManager entityManager; // Detaches streamed departments once they are written
+    private final TransactionTemplate readOnlyTransaction; // Wraps database reads only, never cache lookups
     private final RedisService redisService;
-    private static final String DEPARTMENT_CACHE_KEY_PREFIX = "department:";
-    private static final String DEPARTMENTLIST_CACHE_KEY = "department-list";
-    private static final long timeout = 0;
-    private static final TimeUnit unit = null;
-
-    public DepartmentServiceImpl(DepartmentRepository departmentRepository,
-        RedisService redisService) {
+    private final NearCacheService nearCacheService; // In-JVM cache in front of Redis, invalidated on every write
+    private final CacheLoadingService cacheLoadingService; // Loads missing keys once per key across threads and nodes
+    private final CacheTtlPolicy cacheTtlPolicy; // Jittered TTL per keyspace
+    private final CacheUpdateService cacheUpdateService; // Applies cache updates asynchronously after commit
+    private final CacheMetrics cacheMetrics; // Lookup outcomes per keyspace
+    private static final String DEPARTMENT_CACHE_KEY_PREFIX = "department:"; // Keys are "department:{id}", hash-tagged by id
+    private static final String DEPARTMENTLIST_CACHE_KEY = "department-list-by-id"; // Hash of all departments keyed by id
+    private static final String DEPARTMENT_KEYSPACE = "department"; // TTL set by cache.ttl.department
+    private static final String DEPARTMENTLIST_KEYSPACE = "department-list"; // TTL set by cache.ttl.department-list
+    private static final String DEPARTMENTPAGE_INDEX_KEY = "department-pages"; // Sorted set of the cached pages by id range
+    private static final String LAST_PAGE_END = "\uffff"; // Sorts after every id: the last page has no upper bound
+    private static final String DEPARTMENTPAGE_KEYSPACE = "department-page"; // TTL set by cache.ttl.department-page
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final RedisScript<Long> RANGE_INDEX_EVICT_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/range_index_evict.lua"), Long.class);
+    private static final TimeUnit unit = TimeUnit.MILLISECONDS;
+
+    public DepartmentServiceImpl(DepartmentRepository departmentRepository, EntityManager entityManager,
+        PlatformTransactionManager transactionManager, RedisService redisService, NearCacheService nearCacheService, CacheLoadingService cacheLoadingService,
+        CacheTtlPolicy cacheTtlPolicy, CacheUpdateService cacheUpdateService, CacheMetrics cacheMetrics) {
         this.departmentRepository = departmentRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
         this.redisService = redisService;
+        this.nearCacheService = nearCacheService;
+        this.cacheLoadingService = cacheLoadingService;
+        this.cacheTtlPolicy = cacheTtlPolicy;
+        this.cacheUpdateService = cacheUpdateService;
+        this.cacheMetrics = cacheMetrics;
     }
 
     @Transactional
@@ -45,11 +92,9 @@ public class DepartmentServiceImpl implements DepartmentService {
             // Save department to database
             Department savedDepartment = departmentRepository.save(department);
 
-            // Save department to Redis
-            redisService.set(DEPARTMENT_CACHE_KEY_PREFIX + savedDepartment.getId(), savedDepartment, timeout, unit);
-
-            // Replace the list with the latest data
-            redisService.setList(DEPARTMENTLIST_CACHE_KEY, departmentRepository.findAll(), timeout, unit);
+            // Save department to Redis once the transaction has committed
+            cacheUpdateService.submitAfterCommit(departmentKey(savedDepartment.getId()),
+                writes -> cacheDepartment(savedDepartment, writes));
 
             return savedDepartment;
         } catch (Exception e) {
@@ -57,27 +102,27 @@ public class DepartmentServiceImpl implements DepartmentService {
         }
     }
 
-    @Transactional
     @Override
     public Department findById(String id) {
         Assert.notNull(id, "Department id cannot be null");
 
         try {
-            // Check if department exists in Redis
-            Department department = (Department) redisService.get(DEPARTMENT_CACHE_KEY_PREFIX + id, Department.class);
-
-            // If department does not exist in Redis, fetch it from the database
-            if (department == null) {
-                department = departmentRepository.findById(id).orElse(null);
+            // Check if department exists in memory
+            Department department = nearCacheService.get(departmentKey(id), Department.class);
+            if (department != null) {
+                cacheMetrics.recordLookup(DEPARTMENT_KEYSPACE, CacheMetrics.Outcome.NEAR_HIT);
+                return department;
+            }
 
-                // If department exists, save it to Redis
-                if (department != null) {
-                    redisService.set(DEPARTMENT_CACHE_KEY_PREFIX + id, department, timeout, unit);
+            // Check if department exists in Redis, otherwise fetch it from the database and save it to Redis
+            long nearCacheVersion = nearCacheService.version();
+            department = cacheLoadingService.getOrLoad(DEPARTMENT_KEYSPACE, departmentKey(id),
+                () -> redisService.getWithTtl(departmentKey(id), Department.class),
+                () -> readOnlyTransaction.execute(status -> departmentRepository.findById(id).orElse(null)),
+                loaded -> redisService.set(departmentKey(id), loaded,
+                    cacheTtlPolicy.ttlMillis(DEPARTMENT_KEYSPACE), unit));
 
-                    // Replace the list with the latest data
-                    redisService.setList(DEPARTMENTLIST_CACHE_KEY, departmentRepository.findAll(), timeout, unit);
-                }
-            }
+            nearCacheService.put(departmentKey(id), department, nearCacheVersion);
             
             return department;
         } catch (Exception e) {
@@ -85,21 +130,26 @@ public class DepartmentServiceImpl implements DepartmentService {
         }
     }
 
-    @Transactional
     @Override
     public List<Department> findAll() {
         try {
-            // Check if departments exist in Redis
-            List<Department> departments = redisService.getList(DEPARTMENTLIST_CACHE_KEY, Department.class);
+            // Check if departments exist in memory
+            @SuppressWarnings("unchecked")
+            List<Department> nearCachedDepartments = nearCacheService.get(DEPARTMENTLIST_CACHE_KEY, List.class);
+            if (nearCachedDepartments != null) {
+                cacheMetrics.recordLookup(DEPARTMENTLIST_KEYSPACE, CacheMetrics.Outcome.NEAR_HIT);
+                return nearCachedDepartments;
+            }
 
-            // If departments do not exist in Redis, fetch them from the database
-            if (departments == null || departments.isEmpty()) {
-                departments = departmentRepository.findAll(Sort.by(Sort.Direction.ASC, "id"));
+            // Check if departments exist in Redis, otherwise fetch them from the database and save them to Redis
+            long nearCacheVersion = nearCacheService.version();
+            List<Department> departments = cacheLoadingService.getOrLoad(DEPARTMENTLIST_KEYSPACE, DEPARTMENTLIST_CACHE_KEY,
+                () -> getCachedDepartments(DEPARTMENTLIST_CACHE_KEY),
+                () -> readOnlyTransaction.execute(status -> departmentRepository.findAll(Sort.by(Sort.Direction.ASC, "id"))),
+                loaded -> cacheDepartments(DEPARTMENTLIST_CACHE_KEY, DEPARTMENTLIST_KEYSPACE, loaded));
 
-                // If departments exist, save them to Redis
-                if (departments != null && !departments.isEmpty()) {
-                    redisService.setList(DEPARTMENTLIST_CACHE_KEY, departments, timeout, unit);
-                }
+            if (departments != null && !departments.isEmpty()) {
+                nearCacheService.put(DEPARTMENTLIST_CACHE_KEY, List.copyOf(departments), nearCacheVersion);
             }
 
             return departments;
@@ -108,6 +158,60 @@ public class DepartmentServiceImpl implements DepartmentService {
         }
     }
 
+    /*
+     * Pages are cached by cursor and size, and indexed by the range of ids they cover:
+     * (after, last id], or everything after the cursor for the last page. With keyset pagination
+     * a write only changes the pages whose range contains its id; the pages before and after
+     * it keep their content, so a write evicts those pages alone and the others stay cached.
+     */
+    @Override
+    public DepartmentPage findPage(String after, int size) {
+        Assert.isTrue(size > 0 && size <= MAX_PAGE_SIZE, "Page size must be between 1 and " + MAX_PAGE_SIZE);
+
+        try {
+            int limit = size;
+            String key = pageKey(after, limit);
+
+            // Check if the page exists in Redis, otherwise fetch it from the database and save it to Redis;
+            // updates name the index rather than the page, so loads are fenced by the index
+            List<Department> departments = cacheLoadingService.getOrLoad(DEPARTMENTPAGE_KEYSPACE, key, DEPARTMENTPAGE_INDEX_KEY,
+                () -> getCachedDepartments(key),
+                () -> readOnlyTransaction.execute(status -> after == null
+                    ? departmentRepository.findAllByOrderByIdAsc(Limit.of(limit))
+                    : departmentRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit))),
+                loaded -> cachePage(key, after, limit, loaded));
+
+            // A full page may be followed by another one; the last page is the first one that is not full
+            String nextCursor = departments.size() == limit ? departments.get(limit - 1).getId() : null;
+            return new DepartmentPage(departments, nextCursor);
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /*
+     * Rows are fetched from a database cursor and detached once the action is done with them,
+     * so neither the result set nor the persistence context grows with the table.
+     * The stream bypasses the caches; the cursor only lives in a read-only transaction.
+     */
+    @Override
+    public void streamAll(Consumer<Department> action) {
+        Assert.notNull(action, "Action cannot be null");
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Department> departments = departmentRepository.streamAllByOrderByIdAsc()) {
+                    departments.forEach(department -> {
+                        action.accept(department);
+                        entityManager.detach(department);
+                    });
+                }
+            });
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     @Transactional
     @Override
     public Department update(String id, Department department) {
@@ -130,11 +234,9 @@ public class DepartmentServiceImpl implements DepartmentService {
             existingDepartment.setUpdatedDate(department.getUpdatedDate());
             Department updatedDepartment = departmentRepository.save(existingDepartment);
 
-            // Save updated department to Redis
-            redisService.set(DEPARTMENT_CACHE_KEY_PREFIX + id, updatedDepartment, timeout, unit);
-
-            // Replace the list with the latest data
-            redisService.setList(DEPARTMENTLIST_CACHE_KEY, departmentRepository.findAll(), timeout, unit);
+            // Save updated department to Redis once the transaction has committed
+            cacheUpdateService.submitAfterCommit(departmentKey(id),
+                writes -> cacheDepartment(updatedDepartment, writes));
 
             return updatedDepartment;
         } catch (Exception e) {
@@ -159,14 +261,98 @@ public class DepartmentServiceImpl implements DepartmentService {
             // Delete department from database
             departmentRepository.deleteById(id);
 
-            // Delete department from Redis
-            redisService.delete(DEPARTMENT_CACHE_KEY_PREFIX + id);
-
-            // Replace the list with the latest data
-            redisService.setList(DEPARTMENTLIST_CACHE_KEY, departmentRepository.findAll(), timeout, unit);
+            // Delete department from Redis once the transaction has committed
+            cacheUpdateService.submitAfterCommit(departmentKey(id), writes -> evictDepartment(id, writes));
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage());
         }
     }
 
+    private static String departmentKey(String id) {
+        return RedisKeys.tagged(DEPARTMENT_CACHE_KEY_PREFIX, id);
+    }
+
+    // Keys are "{department-pages}:after:size", on the slot of the index so one script can evict them
+    private static String pageKey(String after, int size) {
+        return RedisKeys.sameSlot(DEPARTMENTPAGE_INDEX_KEY, ":" + (after == null ? "" : after) + ":" + size);
+    }
+
+    // Save a department to Redis, replace it in the cached list and drop the copies held in memory
+    private void cacheDepartment(Department department, RedisWriteBatch writes) {
+        String key = departmentKey(department.getId());
+
+        // Fence off the loads still in flight first, so they cannot leave what they read before this update
+        cacheLoadingService.beginUpdate(key, writes);
+        cacheLoadingService.beginUpdate(DEPARTMENTLIST_CACHE_KEY, writes);
+        cacheLoadingService.beginUpdate(DEPARTMENTPAGE_INDEX_KEY, writes);
+
+        writes.set(key, department, cacheTtlPolicy.ttlMillis(DEPARTMENT_KEYSPACE), unit);
+
+        // Add or replace the department in the cached list, if the list is cached, and evict the cached pages containing it
+        writes.putHashEntryIfExists(DEPARTMENTLIST_CACHE_KEY, department.getId(), department);
+        writes.executeScript(RANGE_INDEX_EVICT_SCRIPT, List.of(DEPARTMENTPAGE_INDEX_KEY), department.getId());
+
+        // Drop the stale copies held in memory by every node
+        nearCacheService.invalidate(key, writes);
+        nearCacheService.invalidate(DEPARTMENTLIST_CACHE_KEY, writes);
+    }
+
+    // Delete a department from Redis and from the cached list, and drop the copies held in memory
+    private void evictDepartment(String id, RedisWriteBatch writes) {
+        String key = departmentKey(id);
+
+        cacheLoadingService.beginUpdate(key, writes);
+        cacheLoadingService.beginUpdate(DEPARTMENTLIST_CACHE_KEY, writes);
+        cacheLoadingService.beginUpdate(DEPARTMENTPAGE_INDEX_KEY, writes);
+
+        writes.delete(key);
+        writes.deleteHashEntry(DEPARTMENTLIST_CACHE_KEY, id);
+        writes.executeScript(RANGE_INDEX_EVICT_SCRIPT, List.of(DEPARTMENTPAGE_INDEX_KEY), id);
+
+        nearCacheService.invalidate(key, writes);
+        nearCacheService.invalidate(DEPARTMENTLIST_CACHE_KEY, writes);
+    }
+
+    // The hash is keyed by id, so sort by id to keep the same order as the database query
+    private CachedValue<List<Department>> getCachedDepartments(String key) {
+        CachedValue<Map<String, Department>> cached = redisService.getHashWithTtl(key, Department.class);
+        if (cached.getValue().isEmpty()) {
+            return new CachedValue<>(null, cached.getTtlMillis());
+        }
+
+        return new CachedValue<>(cached.getValue().values().stream()
+            .sorted(Comparator.comparing(Department::getId))
+            .toList(), cached.getTtlMillis());
+    }
+
+    private void cacheDepartments(String key, String keyspace, List<Department> departments) {
+        if (departments.isEmpty()) {
+            return;
+        }
+
+        redisService.setHash(key, byId(departments), cacheTtlPolicy.ttlMillis(keyspace), unit);
+    }
+
+    // Save a page to Redis and index it by the range of ids it covers, "<last id>\0<after>\0<key>"
+    private void cachePage(String key, String after, int size, List<Department> departments) {
+        if (departments.isEmpty()) {
+            return;
+        }
+
+        String last = departments.size() == size ? departments.get(size - 1).getId() : LAST_PAGE_END;
+        redisService.setHash(key, byId(departments), cacheTtlPolicy.ttlMillis(DEPARTMENTPAGE_KEYSPACE), unit);
+        redisService.addToSortedSet(DEPARTMENTPAGE_INDEX_KEY, last + '\0' + (after == null ? "" : after) + '\0' + key, 0);
+
+        // The index outlives every page it lists; the eviction script drops the entries of expired pages
+        long indexTtlMillis = cacheTtlPolicy.maxTtlMillis(DEPARTMENTPAGE_KEYSPACE);
+        if (indexTtlMillis > 0) {
+            redisService.expire(DEPARTMENTPAGE_INDEX_KEY, indexTtlMillis, unit);
+        }
+    }
+
+    private static Map<String, Department> byId(List<Department> departments) {
+        Map<String, Department> departmentsById = new LinkedHashMap<>();
+        departments.forEach(department -> departmentsById.put(department.getId(), department));
+        return departmentsById;
+    }
 }
@@ -0,0 +1,48 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.List;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitLease;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.util.RedisKeys;
+
+@Component
+public class FixedWindowRateLimitStrategy extends AbstractScriptRateLimitStrategy {
+
+    private static final String KEY_PREFIX = "rate-limit:";
+
+    // Reserves several requests of the same counter with one INCRBY
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisScript<List<Long>> LEASE_SCRIPT =
+        (RedisScript) RedisScript.of(new ClassPathResource("scripts/fixed_window_lease.lua"), List.class);
+
+    private final RedisService redisService;
+
+    public FixedWindowRateLimitStrategy(@Qualifier("rateLimitRedisService") RedisService redisService) {
+        super(redisService, "scripts/fixed_window.lua", KEY_PREFIX);
+        this.redisService = redisService;
+    }
+
+    @Override
+    public RateLimitAlgorithm getAlgorithm() {
+        return RateLimitAlgorithm.FIXED_WINDOW;
+    }
+
+    @Override
+    public boolean supportsLeasing() {
+        return true;
+    }
+
+    @Override
+    public RateLimitLease lease(String key, int maxRequests, long windowMillis, int leaseSize) {
+        List<Long> result = redisService.executeScript(LEASE_SCRIPT, List.of(RedisKeys.tagged(KEY_PREFIX, key)),
+            maxRequests, windowMillis, leaseSize);
+        return RateLimitLease.fromScriptResult(result);
+    }
+}
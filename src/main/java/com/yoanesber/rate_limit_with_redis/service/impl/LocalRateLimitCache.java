@@ -0,0 +1,137 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitQuota;
+
+/*
+ * In-process tier in front of Redis.
+ * It remembers two kinds of verdicts per rate limit key, both expiring on their own:
+ * 1. "Denied until T": a client that was just denied is denied locally until its quota resets,
+ *    so an abusive client stops costing a round trip per request.
+ * 2. Leases: a slice of the global quota reserved in Redis for this node, admitted locally
+ *    until it is used up or its window resets.
+ * Verdicts are kept per key and quota (limit, window and algorithm): once the policy of a route
+ * or the tier of a client changes, the verdicts taken under the old quota no longer apply and
+ * simply expire.
+ *
+ * The map is a ConcurrentHashMap read without locks; tokens are taken with a CAS.
+ * It is bounded by max-entries: expired entries are purged at most once per second
+ * when the bound is reached, and new verdicts are simply not cached while it is full.
+ */
+@Component
+public class LocalRateLimitCache {
+
+    private static final long PURGE_INTERVAL_MILLIS = 1000;
+
+    @Value("${rate-limit.local-tier.max-entries:100000}")
+    private long maxEntries;
+
+    private final Map<EntryKey, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    // Decide locally, or return null when the decision must be made by Redis
+    public RateLimitDecision tryAcquire(String key, RateLimitQuota quota) {
+        EntryKey entryKey = EntryKey.of(key, quota);
+        Entry entry = entries.get(entryKey);
+        if (entry == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now >= entry.expiresAt) {
+            entries.remove(entryKey, entry);
+            return null;
+        }
+
+        if (entry.denied) {
+            return new RateLimitDecision(false, 0, entry.expiresAt - now);
+        }
+
+        // Take a leased token; an exhausted lease has to be renewed in Redis
+        int tokens = entry.tokens.get();
+        while (tokens > 0) {
+            if (entry.tokens.compareAndSet(tokens, tokens - 1)) {
+                return new RateLimitDecision(true, tokens - 1 + entry.remoteRemaining, entry.expiresAt - now);
+            }
+            tokens = entry.tokens.get();
+        }
+
+        return null;
+    }
+
+    // Remember that a key is denied until its quota resets
+    public void recordDenied(String key, RateLimitQuota quota, long resetAfterMillis) {
+        if (resetAfterMillis > 0 && hasCapacity()) {
+            entries.put(EntryKey.of(key, quota), new Entry(true, 0, 0, System.currentTimeMillis() + resetAfterMillis));
+        }
+    }
+
+    // Keep the unused part of a lease for local admission until the window resets
+    public void recordLease(String key, RateLimitQuota quota, int tokens, long remoteRemaining, long resetAfterMillis) {
+        if (tokens <= 0 || resetAfterMillis <= 0) {
+            return;
+        }
+
+        EntryKey entryKey = EntryKey.of(key, quota);
+        long expiresAt = System.currentTimeMillis() + resetAfterMillis;
+        Entry existing = entries.get(entryKey);
+
+        // Merge with a lease renewed concurrently by another thread so its tokens are not lost;
+        // only into a lease expiring no later, so leased tokens never outlive their window
+        if (existing != null && !existing.denied && existing.expiresAt > System.currentTimeMillis()
+            && existing.expiresAt <= expiresAt) {
+            existing.tokens.addAndGet(tokens);
+        } else if (hasCapacity()) {
+            entries.put(entryKey, new Entry(false, tokens, remoteRemaining, expiresAt));
+        }
+    }
+
+    private boolean hasCapacity() {
+        if (entries.size() < maxEntries) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        long last = lastPurge.get();
+        if (now - last >= PURGE_INTERVAL_MILLIS && lastPurge.compareAndSet(last, now)) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (now >= iterator.next().expiresAt) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        return entries.size() < maxEntries;
+    }
+
+    private record EntryKey(String key, int limit, long windowMillis, RateLimitAlgorithm algorithm) {
+        private static EntryKey of(String key, RateLimitQuota quota) {
+            return new EntryKey(key, quota.getLimit(), quota.getWindowMillis(), quota.getAlgorithm());
+        }
+    }
+
+    private static final class Entry {
+        private final boolean denied;
+        private final AtomicInteger tokens;
+        private final long remoteRemaining;
+        private final long expiresAt;
+
+        private Entry(boolean denied, int tokens, long remoteRemaining, long expiresAt) {
+            this.denied = denied;
+            this.tokens = new AtomicInteger(tokens);
+            this.remoteRemaining = remoteRemaining;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.yoanesber.rate_limit_with_redis.service.NearCacheService;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.service.RedisWriteBatch;
+
+/*
+ * In-JVM cache (L1) in front of Redis for rarely changing data.
+ * A hit costs a map lookup instead of a Redis round trip and a JSON deserialization.
+ *
+ * Consistency between nodes:
+ * 1. A write invalidates the key locally and publishes it on the invalidation channel;
+ *    every node (this one included) is subscribed and drops the key.
+ * 2. Entries also expire after near-cache.ttl-ms, which bounds staleness if an
+ *    invalidation message is lost, e.g. while the pub/sub connection reconnects.
+ * 3. Every invalidation bumps a version; a value read from Redis is only cached if no
+ *    invalidation happened while it was being read, so a slow read cannot re-cache stale data.
+ *
+ * The map is bounded by near-cache.max-entries: expired entries are purged at most once per
+ * second when the bound is reached, and new entries are not cached while it is still full.
+ */
+@Service
+@Slf4j
+public class NearCacheServiceImpl implements NearCacheService, MessageListener {
+
+    private static final String INVALIDATION_CHANNEL = "near-cache:invalidation";
+    private static final long PURGE_INTERVAL_MILLIS = 1000;
+
+    @Value("${near-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${near-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${near-cache.ttl-ms:60000}")
+    private long ttlMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong lastPurge = new AtomicLong();
+    private final RedisService redisService;
+
+    public NearCacheServiceImpl(RedisService redisService, RedisMessageListenerContainer listenerContainer) {
+        this.redisService = redisService;
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    @Override
+    public <T> T get(String key, Class<T> clazz) {
+        if (!enabled) {
+            return null;
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            entries.remove(key, entry);
+            return null;
+        }
+
+        return clazz.isInstance(entry.value) ? clazz.cast(entry.value) : null;
+    }
+
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    @Override
+    public void put(String key, Object value, long expectedVersion) {
+        Assert.notNull(key, "Key cannot be null");
+
+        if (!enabled || value == null || !hasCapacity()) {
+            return;
+        }
+
+        Entry entry = new Entry(value, System.currentTimeMillis() + ttlMillis);
+        entries.put(key, entry);
+
+        // An invalidation raced with the read that produced the value; drop it again
+        if (version.get() != expectedVersion) {
+            entries.remove(key, entry);
+        }
+    }
+
+    @Override
+    public void invalidate(String key) {
+        Assert.notNull(key, "Key cannot be null");
+
+        evict(key);
+
+        try {
+            redisService.publish(INVALIDATION_CHANNEL, key);
+        } catch (Exception e) {
+            // Other nodes fall back to the TTL of their entries
+            log.warn("Could not publish near cache invalidation for key: {}", key, e);
+        }
+    }
+
+    @Override
+    public void invalidate(String key, RedisWriteBatch writes) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(writes, "Writes cannot be null");
+
+        // The message is published after the earlier writes of the batch, and evicts this node again once they are applied
+        evict(key);
+        writes.publish(INVALIDATION_CHANNEL, key);
+    }
+
+    // Invalidation published by any node, this one included
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evict(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void evict(String key) {
+        version.incrementAndGet();
+        entries.remove(key);
+    }
+
+    private boolean hasCapacity() {
+        if (entries.size() < maxEntries) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        long last = lastPurge.get();
+        if (now - last >= PURGE_INTERVAL_MILLIS && lastPurge.compareAndSet(last, now)) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (now >= iterator.next().expiresAt) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        return entries.size() < maxEntries;
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
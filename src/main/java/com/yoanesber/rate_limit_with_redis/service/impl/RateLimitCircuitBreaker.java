@@ -0,0 +1,107 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/*
+ * Circuit breaker around the rate limiter's Redis calls.
+ * 1. Closed: calls go to Redis; failure-threshold consecutive failures open the circuit.
+ * 2. Open: calls are not attempted for open-duration-ms, the fallback answers immediately,
+ *    so requests fail fast instead of each waiting for the command timeout.
+ * 3. Half open: once open-duration-ms has elapsed a single probe call goes to Redis;
+ *    its success closes the circuit, its failure opens it again. Only calls that reached Redis
+ *    are recorded; a call answered locally releases the probe.
+ * State changes are lock-free (CAS), nothing here blocks or pins a virtual thread.
+ * The state is exported as the gauge rate.limit.circuit.state: 0 closed, 1 open, 2 half open.
+ */
+@Component
+@Slf4j
+public class RateLimitCircuitBreaker {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Value("${rate-limit.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${rate-limit.circuit-breaker.open-duration-ms:10000}")
+    private long openDurationMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile long openedAt;
+
+    public RateLimitCircuitBreaker(MeterRegistry meterRegistry) {
+        Gauge.builder("rate.limit.circuit.state", state, s -> s.get().ordinal())
+            .register(meterRegistry);
+    }
+
+    // Whether a call may go to Redis now
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMillis) {
+                return false;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+
+        // Half open: only one probe at a time
+        return probing.compareAndSet(false, true);
+    }
+
+    // Only the half open probe closes the circuit: a call started before the circuit opened and
+    // succeeding late must not cut the open duration short
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+
+        if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+            probing.set(false);
+            log.info("Rate limit circuit closed, Redis is reachable again");
+        }
+    }
+
+    // A permitted call was answered without reaching Redis: it says nothing about Redis,
+    // so give the half open probe back to the next call instead of leaving it taken
+    public void releaseProbe() {
+        if (state.get() == State.HALF_OPEN) {
+            probing.set(false);
+        }
+    }
+
+    public void recordFailure() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            open();
+        } else if (current == State.CLOSED && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open();
+        }
+    }
+
+    // Time until the next call to Redis is attempted, 0 while the circuit is closed
+    public long retryAfterMillis() {
+        if (state.get() == State.CLOSED) {
+            return 0;
+        }
+
+        return Math.max(0, openedAt + openDurationMillis - System.currentTimeMillis());
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        state.set(State.OPEN);
+        probing.set(false);
+        consecutiveFailures.set(0);
+        log.warn("Rate limit circuit opened, Redis calls are suspended for {} ms", openDurationMillis);
+    }
+}
@@ -0,0 +1,149 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.entity.CompositeRateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDimension;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitFailureMode;
+import com.yoanesber.rate_limit_with_redis.metrics.RateLimitMetrics;
+
+/*
+ * Decides requests while Redis is unavailable, according to rate-limit.failure-mode:
+ * * FAIL_OPEN: every request is admitted
+ * * FAIL_CLOSED: every request is denied until the circuit breaker tries Redis again
+ * * LOCAL (default): a fixed window per key is counted in-process, each node admitting
+ *   ceil(limit / cluster size) requests per window, so the cluster as a whole stays close
+ *   to the limit as long as the load is spread evenly across nodes
+ *
+ * The local windows are bounded by rate-limit.fallback.max-entries: expired windows are purged
+ * at most once per second when the bound is reached, and new keys are admitted untracked
+ * while it is still full.
+ */
+@Component
+public class RateLimitFallback {
+
+    private static final long PURGE_INTERVAL_MILLIS = 1000;
+
+    @Value("${rate-limit.failure-mode:LOCAL}")
+    private RateLimitFailureMode failureMode;
+
+    @Value("${rate-limit.fallback.max-entries:100000}")
+    private long maxEntries;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge = new AtomicLong();
+    private final ClusterSizeEstimator clusterSizeEstimator;
+    private final RateLimitCircuitBreaker circuitBreaker;
+    private final RateLimitMetrics rateLimitMetrics;
+
+    public RateLimitFallback(ClusterSizeEstimator clusterSizeEstimator, RateLimitCircuitBreaker circuitBreaker,
+        RateLimitMetrics rateLimitMetrics) {
+        this.clusterSizeEstimator = clusterSizeEstimator;
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimitMetrics = rateLimitMetrics;
+    }
+
+    public RateLimitDecision decide(String key, int maxRequests, long windowMillis) {
+        return decide(key, maxRequests, windowMillis, 1);
+    }
+
+    public RateLimitDecision decide(String key, int maxRequests, long windowMillis, int permits) {
+        RateLimitDecision decision;
+        switch (failureMode) {
+            case FAIL_OPEN:
+                decision = new RateLimitDecision(true, Math.max(maxRequests - permits, 0), windowMillis);
+                break;
+            case FAIL_CLOSED:
+                decision = new RateLimitDecision(false, 0, Math.max(circuitBreaker.retryAfterMillis(), 1));
+                break;
+            default:
+                decision = decideLocally(key, maxRequests, windowMillis, permits);
+        }
+
+        rateLimitMetrics.recordFallback(failureMode, decision.isAllowed());
+        return decision;
+    }
+
+    /*
+     * Composite limits are decided one dimension after the other, stopping at the first denial.
+     * Unlike the script, dimensions checked before the denying one keep the request counted;
+     * in degraded mode the limits err on the strict side.
+     */
+    public CompositeRateLimitDecision decideAll(String route, List<RateLimitDimension> dimensions) {
+        CompositeRateLimitDecision binding = null;
+        for (RateLimitDimension dimension : dimensions) {
+            RateLimitDecision decision = decide(route + ":" + dimension.getName() + ":" + dimension.getKey(),
+                dimension.getLimit(), dimension.getWindowMillis());
+
+            if (!decision.isAllowed() || binding == null || decision.getRemaining() < binding.getRemaining()) {
+                binding = new CompositeRateLimitDecision(decision.isAllowed(), decision.getRemaining(),
+                    decision.getResetAfterMillis(), dimension.getName(), dimension.getLimit());
+            }
+
+            if (!decision.isAllowed()) {
+                break;
+            }
+        }
+
+        return binding;
+    }
+
+    private RateLimitDecision decideLocally(String key, int maxRequests, long windowMillis, int permits) {
+        int clusterSize = clusterSizeEstimator.clusterSize();
+        int localLimit = (int) Math.max(1, (maxRequests + clusterSize - 1L) / clusterSize);
+        long now = System.currentTimeMillis();
+
+        if (!windows.containsKey(key) && !hasCapacity()) {
+            return new RateLimitDecision(true, Math.max(localLimit - permits, 0), windowMillis);
+        }
+
+        Window window = windows.compute(key,
+            (k, existing) -> existing == null || now >= existing.endsAt ? new Window(now + windowMillis) : existing);
+
+        // Like the scripts, a denied request gives its permits back
+        int count = window.count.addAndGet(permits);
+        long resetAfterMillis = Math.max(window.endsAt - now, 1);
+        if (count > localLimit) {
+            window.count.addAndGet(-permits);
+            return new RateLimitDecision(false, 0, resetAfterMillis);
+        }
+
+        return new RateLimitDecision(true, localLimit - count, resetAfterMillis);
+    }
+
+    private boolean hasCapacity() {
+        if (windows.size() < maxEntries) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+        long last = lastPurge.get();
+        if (now - last >= PURGE_INTERVAL_MILLIS && lastPurge.compareAndSet(last, now)) {
+            Iterator<Window> iterator = windows.values().iterator();
+            while (iterator.hasNext()) {
+                if (now >= iterator.next().endsAt) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        return windows.size() < maxEntries;
+    }
+
+    private static final class Window {
+        private final AtomicInteger count = new AtomicInteger();
+        private final long endsAt;
+
+        private Window(long endsAt) {
+            this.endsAt = endsAt;
+        }
+    }
+}
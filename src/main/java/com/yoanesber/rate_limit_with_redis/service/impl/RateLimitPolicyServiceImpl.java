@@ -0,0 +1,181 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import com.yoanesber.rate_limit_with_redis.config.RateLimitProperties;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitQuota;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitRouteQuotas;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitPolicyService;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+
+@Service
+@Slf4j
+public class RateLimitPolicyServiceImpl implements RateLimitPolicyService {
+
+    /*
+     * Quotas and tiers can be overridden at runtime without a restart through Redis hashes:
+     * * rate-limit:policies, field "<route>:<tier>", value {"limit":100,"window":"PT1M","algorithm":"GCRA"}
+     * * rate-limit:tenants, field "<api-key>", value "\"premium\""
+     * * rate-limit:users, field "<user>", value "\"premium\""
+     * * rate-limit:ips, field "<ip address>", value "\"premium\""
+     * Redis entries take precedence over the configuration and are picked up on the next reload.
+     */
+    private static final String POLICY_HASH_KEY = "rate-limit:policies";
+    private static final String TENANT_HASH_KEY = "rate-limit:tenants";
+    private static final String USER_HASH_KEY = "rate-limit:users";
+    private static final String IP_HASH_KEY = "rate-limit:ips";
+    private static final String DEFAULT_TIER = "default";
+
+    private final RateLimitProperties properties;
+    private final RedisService redisService;
+
+    // Immutable snapshot swapped as a whole on reload, so lookups never lock and never see a partial update
+    private volatile Snapshot snapshot;
+
+    // Quotas handed out per route, updated in place on reload; the lock keeps a reload from missing a new route
+    private final Map<String, RateLimitRouteQuotas> routes = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public RateLimitPolicyServiceImpl(RateLimitProperties properties, RedisService redisService) {
+        this.properties = properties;
+        this.redisService = redisService;
+        this.snapshot = buildSnapshot(Map.of(), Map.of(), Map.of(), Map.of());
+    }
+
+    @Override
+    public RateLimitRouteQuotas routeQuotas(String route) {
+        Assert.notNull(route, "Route cannot be null");
+
+        RateLimitRouteQuotas quotas = routes.get(route);
+        if (quotas != null) {
+            return quotas;
+        }
+
+        lock.lock();
+        try {
+            return routes.computeIfAbsent(route, r -> new RateLimitRouteQuotas(snapshot.quotasOf(r)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String resolveTier(String apiKey, String user, String remoteAddress) {
+        Snapshot current = snapshot;
+
+        // The most specific identity wins: API key, then authenticated user, then IP address
+        String tier = apiKey == null ? null : current.apiKeyTiers().get(apiKey);
+        if (tier == null && user != null) {
+            tier = current.userTiers().get(user);
+        }
+        if (tier == null && remoteAddress != null) {
+            tier = current.ipTiers().get(remoteAddress);
+        }
+
+        return tier != null ? tier : DEFAULT_TIER;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${rate-limit.policy-reload-interval-ms:30000}")
+    public void reload() {
+        try {
+            Map<String, RateLimitProperties.Quota> redisQuotas = redisService.getHash(POLICY_HASH_KEY, RateLimitProperties.Quota.class);
+            Map<String, String> redisTenants = redisService.getHash(TENANT_HASH_KEY, String.class);
+            Map<String, String> redisUsers = redisService.getHash(USER_HASH_KEY, String.class);
+            Map<String, String> redisIps = redisService.getHash(IP_HASH_KEY, String.class);
+
+            Snapshot next = buildSnapshot(redisQuotas, redisTenants, redisUsers, redisIps);
+            lock.lock();
+            try {
+                snapshot = next;
+                routes.forEach((route, quotas) -> quotas.update(next.quotasOf(route)));
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            // Keep serving the last known quotas when Redis is unavailable
+            log.warn("Could not reload rate limit policies, keeping the previous ones: {}", e.getMessage());
+        }
+    }
+
+    // Resolve configuration and Redis overrides into immutable maps: route -> tier -> quota
+    private Snapshot buildSnapshot(Map<String, RateLimitProperties.Quota> redisQuotas, Map<String, String> redisTenants,
+        Map<String, String> redisUsers, Map<String, String> redisIps) {
+        Map<String, Map<String, RateLimitQuota>> quotas = new HashMap<>();
+
+        properties.getPolicies().forEach((route, tiers) ->
+            tiers.forEach((tier, quota) -> putQuota(quotas, route, tier, quota)));
+
+        redisQuotas.forEach((field, quota) -> {
+            int separator = field.lastIndexOf(':');
+            if (separator <= 0 || separator == field.length() - 1) {
+                log.warn("Ignoring rate limit policy with invalid field: {}", field);
+                return;
+            }
+
+            putQuota(quotas, field.substring(0, separator), field.substring(separator + 1), quota);
+        });
+
+        Map<String, String> apiKeyTiers = merge(properties.getTenants(), redisTenants);
+        Map<String, String> userTiers = merge(properties.getUsers(), redisUsers);
+        Map<String, String> ipTiers = merge(properties.getIps(), redisIps);
+
+        // Every tier a client can be resolved to, so each route can answer any of them in one probe
+        Set<String> tiers = new HashSet<>();
+        tiers.add(DEFAULT_TIER);
+        quotas.values().forEach(routeTiers -> tiers.addAll(routeTiers.keySet()));
+        tiers.addAll(apiKeyTiers.values());
+        tiers.addAll(userTiers.values());
+        tiers.addAll(ipTiers.values());
+
+        Map<String, Map<String, RateLimitQuota>> resolvedQuotas = new HashMap<>();
+        quotas.forEach((route, routeTiers) -> {
+            Map<String, RateLimitQuota> byTier = new HashMap<>();
+            RateLimitQuota routeDefault = routeTiers.get(DEFAULT_TIER);
+            for (String tier : tiers) {
+                RateLimitQuota quota = routeTiers.getOrDefault(tier, routeDefault);
+                if (quota != null) {
+                    byTier.put(tier, quota);
+                }
+            }
+            resolvedQuotas.put(route, Map.copyOf(byTier));
+        });
+
+        return new Snapshot(Map.copyOf(resolvedQuotas), apiKeyTiers, userTiers, ipTiers);
+    }
+
+    private void putQuota(Map<String, Map<String, RateLimitQuota>> quotas, String route, String tier,
+        RateLimitProperties.Quota quota) {
+        if (quota == null || quota.getLimit() <= 0 || quota.getWindow() == null || quota.getWindow().toMillis() <= 0
+            || quota.getAlgorithm() == null) {
+            log.warn("Ignoring invalid rate limit policy for route: {}, tier: {}", route, tier);
+            return;
+        }
+
+        quotas.computeIfAbsent(route, r -> new HashMap<>())
+            .put(tier, new RateLimitQuota(quota.getLimit(), quota.getWindow().toMillis(), quota.getAlgorithm()));
+    }
+
+    private static Map<String, String> merge(Map<String, String> configured, Map<String, String> overrides) {
+        Map<String, String> merged = new HashMap<>(configured);
+        merged.putAll(overrides);
+        return Map.copyOf(merged);
+    }
+
+    private record Snapshot(Map<String, Map<String, RateLimitQuota>> quotas, Map<String, String> apiKeyTiers,
+        Map<String, String> userTiers, Map<String, String> ipTiers) {
+
+        private Map<String, RateLimitQuota> quotasOf(String route) {
+            return quotas.getOrDefault(route, Map.of());
+        }
+    }
+}
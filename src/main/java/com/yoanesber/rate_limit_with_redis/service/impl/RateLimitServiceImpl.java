@@ -1,48 +1,210 @@
 package com.yoanesber.rate_limit_with_redis.service.impl;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import com.yoanesber.rate_limit_with_redis.entity.CompositeRateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDimension;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitLease;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitQuota;
 import com.yoanesber.rate_limit_with_redis.service.RateLimitService;
-import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitStrategy;
 
 @Service
+@Slf4j
 public class RateLimitServiceImpl implements RateLimitService {
 
-    private static final String RATE_LIMIT_PREFIX = "rate-limit:";
-    private final RedisService redisService;
+    /*
+     * Every RateLimitStrategy bean registers itself under its algorithm.
+     * Each strategy runs its whole check as a single Lua script, so a request costs
+     * one round trip regardless of the algorithm chosen for the endpoint.
+     */
+    private final Map<RateLimitAlgorithm, RateLimitStrategy> strategies = new EnumMap<>(RateLimitAlgorithm.class);
 
-    public RateLimitServiceImpl(RedisService redisService) {
-        this.redisService = redisService;
+    /*
+     * Two-tier mode: decisions are first looked up in the in-process LocalRateLimitCache.
+     * Denied verdicts are kept until the quota resets, and strategies that support leasing
+     * reserve lease-size requests per round trip that this node admits locally.
+     * Leased requests are consumed in Redis up front, so the tier never admits more than the limit;
+     * the lease script only trims the part of a reservation beyond the limit. Requests leased but
+     * not used are never given back: a lease simply expires with its window. The error is on the
+     * strict side: each node can hold up to lease-size - 1 reserved but unused requests per key and
+     * window, so a key may be cut off up to (nodes * (lease-size - 1)) requests early.
+     */
+    @Value("${rate-limit.local-tier.enabled:false}")
+    private boolean localTierEnabled;
+
+    @Value("${rate-limit.local-tier.lease-size:10}")
+    private int leaseSize;
+
+    private final LocalRateLimitCache localCache;
+
+    /*
+     * Calls to Redis go through a circuit breaker. While Redis fails or the circuit is open,
+     * requests are decided by RateLimitFallback (fail open, fail closed or a local per-node limit)
+     * instead of failing, and an open circuit answers without waiting for the command timeout.
+     */
+    private final RateLimitCircuitBreaker circuitBreaker;
+    private final RateLimitFallback fallback;
+    private final CompositeRateLimiter compositeRateLimiter;
+
+    public RateLimitServiceImpl(List<RateLimitStrategy> strategies, LocalRateLimitCache localCache,
+        RateLimitCircuitBreaker circuitBreaker, RateLimitFallback fallback, CompositeRateLimiter compositeRateLimiter) {
+        for (RateLimitStrategy strategy : strategies) {
+            this.strategies.put(strategy.getAlgorithm(), strategy);
+        }
+        this.localCache = localCache;
+        this.circuitBreaker = circuitBreaker;
+        this.fallback = fallback;
+        this.compositeRateLimiter = compositeRateLimiter;
     }
 
     @Override
-    public boolean isAllowed(String key, int maxRequests, long duration, TimeUnit unit) {
+    public RateLimitDecision check(String key, int maxRequests, long duration, TimeUnit unit) {
+        return check(key, maxRequests, duration, unit, RateLimitAlgorithm.FIXED_WINDOW);
+    }
+
+    @Override
+    public RateLimitDecision check(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm) {
+        return check(key, maxRequests, duration, unit, algorithm, 1);
+    }
+
+    /*
+     * The decision (allowed, remaining, reset) is built from the single reply of the strategy's
+     * script, or from the local tier, so no extra TTL lookup is needed to report the quota.
+     * Leases hold single requests, so a request costing several permits skips the local tier.
+     */
+    @Override
+    public RateLimitDecision check(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm,
+        int permits) {
         Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(unit, "Time unit cannot be null");
+        Assert.notNull(algorithm, "Algorithm cannot be null");
         Assert.isTrue(maxRequests > 0, "Max requests must be greater than 0");
         Assert.isTrue(duration > 0, "Duration must be greater than 0");
+        Assert.isTrue(permits > 0, "Permits must be greater than 0");
 
-        try {
-            String rateLimitKey = RATE_LIMIT_PREFIX + key;
+        RateLimitStrategy strategy = strategies.get(algorithm);
+        Assert.notNull(strategy, "No rate limit strategy registered for algorithm " + algorithm);
 
-            // Create a new key if it does not exist
-            if (!redisService.exists(rateLimitKey)) {
-                redisService.set(rateLimitKey, 0, duration, unit);
+        long windowMillis = unit.toMillis(duration);
+        if (!circuitBreaker.allowRequest()) {
+            return fallback.decide(key, maxRequests, windowMillis, permits);
+        }
+
+        try {
+            if (localTierEnabled && permits == 1) {
+                return evaluateTwoTier(strategy, key, maxRequests, windowMillis);
             }
 
-            // Increment the count
-            Long count = redisService.increment(rateLimitKey, 1);
+            RateLimitDecision decision = strategy.evaluate(key, maxRequests, windowMillis, permits);
+            circuitBreaker.recordSuccess();
+            return decision;
+        } catch (Exception e) {
+            circuitBreaker.recordFailure();
+            log.warn("Rate limit check failed for key: {}, using the fallback: {}", key, e.getMessage());
+            return fallback.decide(key, maxRequests, windowMillis, permits);
+        }
+    }
 
-            // Reset the count after the duration has passed
-            if (count == 1) {
-                redisService.expire(rateLimitKey, duration, unit);
-            }
+    /*
+     * Settling is best effort: the request has already been served, so while Redis fails or the
+     * circuit is open the charge is dropped instead of being retried or counted locally.
+     */
+    @Override
+    public void settle(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm, int permits) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(unit, "Time unit cannot be null");
+        Assert.notNull(algorithm, "Algorithm cannot be null");
+        Assert.isTrue(maxRequests > 0, "Max requests must be greater than 0");
+        Assert.isTrue(duration > 0, "Duration must be greater than 0");
+        Assert.isTrue(permits > 0, "Permits must be greater than 0");
+
+        RateLimitStrategy strategy = strategies.get(algorithm);
+        Assert.notNull(strategy, "No rate limit strategy registered for algorithm " + algorithm);
 
-            return count <= maxRequests;
+        if (!circuitBreaker.allowRequest()) {
+            return;
+        }
+
+        try {
+            strategy.settle(key, maxRequests, unit.toMillis(duration), permits);
+            circuitBreaker.recordSuccess();
+        } catch (Exception e) {
+            circuitBreaker.recordFailure();
+            log.warn("Could not settle {} permits for key: {}: {}", permits, key, e.getMessage());
+        }
+    }
+
+    /*
+     * All dimensions are checked with the GCRA algorithm in one script call, or in cluster mode one per slot they span.
+     * The local tier does not apply: a verdict cached for one dimension says nothing about the others.
+     */
+    @Override
+    public CompositeRateLimitDecision checkAll(String route, List<RateLimitDimension> dimensions) {
+        Assert.notNull(route, "Route cannot be null");
+        Assert.notEmpty(dimensions, "Dimensions cannot be empty");
+        for (RateLimitDimension dimension : dimensions) {
+            Assert.isTrue(dimension.getLimit() > 0, "Max requests must be greater than 0");
+            Assert.isTrue(dimension.getWindowMillis() > 0, "Duration must be greater than 0");
+        }
+
+        if (!circuitBreaker.allowRequest()) {
+            return fallback.decideAll(route, dimensions);
+        }
+
+        try {
+            CompositeRateLimitDecision decision = compositeRateLimiter.evaluate(route, dimensions);
+            circuitBreaker.recordSuccess();
+            return decision;
         } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
+            circuitBreaker.recordFailure();
+            log.warn("Composite rate limit check failed for route: {}, using the fallback: {}", route, e.getMessage());
+            return fallback.decideAll(route, dimensions);
         }
     }
+
+    private RateLimitDecision evaluateTwoTier(RateLimitStrategy strategy, String key, int maxRequests, long windowMillis) {
+        // Decide in-process when a verdict or a leased token is available under the same quota
+        RateLimitQuota quota = new RateLimitQuota(maxRequests, windowMillis, strategy.getAlgorithm());
+        RateLimitDecision decision = localCache.tryAcquire(key, quota);
+        if (decision != null) {
+            // Redis was not called, so the circuit learns nothing from this request
+            circuitBreaker.releaseProbe();
+            return decision;
+        }
+
+        // Reserve a slice of the quota; the current request consumes the first request of it
+        int size = Math.min(leaseSize, maxRequests);
+        if (strategy.supportsLeasing() && size > 1) {
+            RateLimitLease lease = strategy.lease(key, maxRequests, windowMillis, size);
+            circuitBreaker.recordSuccess();
+
+            if (lease.getGranted() == 0) {
+                localCache.recordDenied(key, quota, lease.getResetAfterMillis());
+                return new RateLimitDecision(false, 0, lease.getResetAfterMillis());
+            }
+
+            localCache.recordLease(key, quota, (int) lease.getGranted() - 1, lease.getRemaining(), lease.getResetAfterMillis());
+            return new RateLimitDecision(true, lease.getGranted() - 1 + lease.getRemaining(), lease.getResetAfterMillis());
+        }
+
+        decision = strategy.evaluate(key, maxRequests, windowMillis);
+        circuitBreaker.recordSuccess();
+
+        if (!decision.isAllowed()) {
+            localCache.recordDenied(key, quota, decision.getResetAfterMillis());
+        }
+
+        return decision;
+    }
 }
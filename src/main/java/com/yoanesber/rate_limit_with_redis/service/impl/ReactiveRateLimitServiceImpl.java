@@ -0,0 +1,100 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitQuota;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitStrategy;
+import com.yoanesber.rate_limit_with_redis.service.ReactiveRateLimitService;
+import com.yoanesber.rate_limit_with_redis.service.ReactiveRedisService;
+
+/*
+ * Non-blocking counterpart of RateLimitServiceImpl for callers that compose Reactor pipelines,
+ * e.g. a WebClient call guarded by a limit. It runs the same strategies and scripts on the same
+ * keys, so both services share quotas. The servlet endpoints keep using the blocking service,
+ * which parks virtual threads rather than platform threads.
+ * When the local tier is enabled, "denied until" verdicts are answered from the LocalRateLimitCache
+ * without a round trip; leasing is only done by the blocking service.
+ * Redis failures go through the same circuit breaker and fallback as the blocking service.
+ */
+@Service
+@Slf4j
+public class ReactiveRateLimitServiceImpl implements ReactiveRateLimitService {
+
+    private final Map<RateLimitAlgorithm, RateLimitStrategy> strategies = new EnumMap<>(RateLimitAlgorithm.class);
+
+    @Value("${rate-limit.local-tier.enabled:false}")
+    private boolean localTierEnabled;
+
+    private final ReactiveRedisService reactiveRedisService;
+    private final LocalRateLimitCache localCache;
+    private final RateLimitCircuitBreaker circuitBreaker;
+    private final RateLimitFallback fallback;
+
+    public ReactiveRateLimitServiceImpl(List<RateLimitStrategy> strategies,
+        @Qualifier("rateLimitReactiveRedisService") ReactiveRedisService reactiveRedisService, LocalRateLimitCache localCache,
+        RateLimitCircuitBreaker circuitBreaker, RateLimitFallback fallback) {
+        for (RateLimitStrategy strategy : strategies) {
+            this.strategies.put(strategy.getAlgorithm(), strategy);
+        }
+        this.reactiveRedisService = reactiveRedisService;
+        this.localCache = localCache;
+        this.circuitBreaker = circuitBreaker;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Mono<RateLimitDecision> check(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm) {
+        return check(key, maxRequests, duration, unit, algorithm, 1);
+    }
+
+    @Override
+    public Mono<RateLimitDecision> check(String key, int maxRequests, long duration, TimeUnit unit, RateLimitAlgorithm algorithm,
+        int permits) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(unit, "Time unit cannot be null");
+        Assert.notNull(algorithm, "Algorithm cannot be null");
+        Assert.isTrue(maxRequests > 0, "Max requests must be greater than 0");
+        Assert.isTrue(duration > 0, "Duration must be greater than 0");
+        Assert.isTrue(permits > 0, "Permits must be greater than 0");
+
+        RateLimitStrategy strategy = strategies.get(algorithm);
+        Assert.notNull(strategy, "No rate limit strategy registered for algorithm " + algorithm);
+
+        long windowMillis = unit.toMillis(duration);
+        RateLimitQuota quota = new RateLimitQuota(maxRequests, windowMillis, algorithm);
+        if (localTierEnabled) {
+            RateLimitDecision local = localCache.tryAcquire(key, quota);
+            if (local != null) {
+                return Mono.just(local);
+            }
+        }
+
+        if (!circuitBreaker.allowRequest()) {
+            return Mono.fromSupplier(() -> fallback.decide(key, maxRequests, windowMillis, permits));
+        }
+
+        return strategy.evaluateReactive(reactiveRedisService, key, maxRequests, windowMillis, permits)
+            .doOnNext(decision -> {
+                circuitBreaker.recordSuccess();
+                if (localTierEnabled && !decision.isAllowed()) {
+                    localCache.recordDenied(key, quota, decision.getResetAfterMillis());
+                }
+            })
+            .onErrorResume(e -> {
+                circuitBreaker.recordFailure();
+                log.warn("Rate limit check failed for key: {}, using the fallback: {}", key, e.getMessage());
+                return Mono.fromSupplier(() -> fallback.decide(key, maxRequests, windowMillis, permits));
+            });
+    }
+}
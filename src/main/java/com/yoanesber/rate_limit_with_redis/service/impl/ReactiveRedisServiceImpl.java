@@ -0,0 +1,53 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+
+import com.yoanesber.rate_limit_with_redis.service.ReactiveRedisService;
+
+/*
+ * Non-blocking counterpart of RedisServiceImpl on ReactiveRedisTemplate.
+ * Script arguments use the same encoding as RedisServiceImpl, so both services run the same
+ * scripts on the same keys interchangeably. RedisConfig builds it on the rate limit connection.
+ */
+@Slf4j
+public class ReactiveRedisServiceImpl implements ReactiveRedisService {
+
+    private final ReactiveRedisTemplate<String, byte[]> reactiveRedisTemplate;
+    private static final StringRedisSerializer SCRIPT_SERIALIZER = new StringRedisSerializer(); // Plain strings for script results
+    private static final RedisElementWriter<Object> SCRIPT_ARGUMENT_WRITER = ReactiveRedisServiceImpl::writeArgument;
+
+    public ReactiveRedisServiceImpl(ReactiveRedisTemplate<String, byte[]> reactiveRedisTemplate) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> executeScript(RedisScript<T> script, List<String> keys, Object... args) {
+        Assert.notNull(script, "Script cannot be null");
+        Assert.notNull(keys, "Keys cannot be null");
+
+        return reactiveRedisTemplate.execute(script, keys, Arrays.asList(args), SCRIPT_ARGUMENT_WRITER,
+                (RedisElementReader<T>) RedisElementReader.from(SCRIPT_SERIALIZER))
+            .doOnError(e -> log.error("An error occurred while executing script for keys: {}", keys, e));
+    }
+
+    // Encoded values (byte[]) are passed through, anything else as its plain string form
+    private static ByteBuffer writeArgument(Object value) {
+        if (value instanceof byte[] bytes) {
+            return ByteBuffer.wrap(bytes);
+        }
+
+        return ByteBuffer.wrap(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+    }
+}
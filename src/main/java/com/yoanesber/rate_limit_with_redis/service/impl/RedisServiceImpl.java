@@ -1,26 +1,80 @@
 package com.yoanesber.rate_limit_with_redis.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import com.yoanesber.rate_limit_with_redis.codec.ValueCodecRegistry;
+import com.yoanesber.rate_limit_with_redis.entity.CachedValue;
 import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.service.RedisWriteBatch;
+import com.yoanesber.rate_limit_with_redis.util.RedisKeys;
 
+/*
+ * The primary RedisService runs on the cache connection (binaryRedisTemplate);
+ * RedisConfig creates a second instance on the rate limit connection for the rate limit strategies.
+ */
 @Service
+@Primary
 @Slf4j
 public class RedisServiceImpl implements RedisService {
 
-    private final ObjectMapper objectMapper; // Jackson for JSON serialization
-    private final RedisTemplate<String, Object> redisTemplate; // Redis template for Redis operations
+    private final ValueCodecRegistry codecs; // Typed codecs encoding values to and decoding them from bytes
+    private final RedisTemplate<String, byte[]> redisTemplate; // Redis template for Redis operations, values are raw bytes
+    private static final StringRedisSerializer SCRIPT_SERIALIZER = new StringRedisSerializer(); // Plain strings for script results
+    private static final ScriptArgumentSerializer SCRIPT_ARGUMENT_SERIALIZER = new ScriptArgumentSerializer();
+    private static final RedisScript<Long> HASH_PUT_IF_EXISTS_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/hash_put_if_exists.lua"), Long.class);
+    private static final RedisScript<Long> COMPARE_AND_DELETE_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/compare_and_delete.lua"), Long.class);
 
-    public RedisServiceImpl(ObjectMapper objectMapper, RedisTemplate<String, Object> redisTemplate) {
-        this.objectMapper = objectMapper;
-        this.redisTemplate = redisTemplate;
+    /*
+     * Lists and hashes are replaced atomically: the new content is written to a temporary key
+     * which is then RENAMEd over the old one, all in one pipeline (one round trip).
+     * Readers see either the old or the new content, never an empty or half-written key.
+     * The temporary key expires on its own if the pipeline fails before the RENAME.
+     * It hashes to the same cluster slot as the key, otherwise RENAME fails with CROSSSLOT.
+     */
+    private static final String TEMP_KEY_INFIX = ":tmp:";
+    private static final long TEMP_KEY_TIMEOUT_SECONDS = 60;
+    private static final long SCAN_COUNT = 1000; // Keys examined per SCAN call
+    private static final Map<String, byte[]> SCRIPT_SOURCES = new ConcurrentHashMap<>(); // Script bodies sent with EVAL, by SHA1
+
+    public RedisServiceImpl(ValueCodecRegistry codecs,
+        @Qualifier("binaryRedisTemplate") RedisTemplate<String, byte[]> binaryRedisTemplate) {
+        this.codecs = codecs;
+        this.redisTemplate = binaryRedisTemplate;
     }
 
     @Override
@@ -30,9 +84,9 @@ public class RedisServiceImpl implements RedisService {
 
         try {
             if (timeout > 0) {
-                redisTemplate.opsForValue().set(key, value, timeout, unit);
+                redisTemplate.opsForValue().set(key, codecs.encode(value), timeout, unit);
             } else {
-                redisTemplate.opsForValue().set(key, value);
+                redisTemplate.opsForValue().set(key, codecs.encode(value));
             }
 
             return true;
@@ -42,14 +96,55 @@ public class RedisServiceImpl implements RedisService {
         }
     }
 
+    @Override
+    public boolean multiSet(Map<String, ?> entries, long timeout, TimeUnit unit) {
+        Assert.notNull(entries, "Entries cannot be null");
+
+        try {
+            if (entries.isEmpty()) {
+                return true;
+            }
+
+            Map<String, byte[]> encodedEntries = encodeValues(entries);
+
+            // MSET does not take an expiration time, so pipeline one SET per key instead
+            if (timeout <= 0) {
+                redisTemplate.opsForValue().multiSet(encodedEntries);
+                return true;
+            }
+
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                    encodedEntries.forEach((key, value) -> ops.opsForValue().set(key, value, timeout, unit));
+                    return null;
+                }
+            });
+
+            return true;
+        } catch (Exception e) {
+            log.error("An error occurred while setting keys: {}", entries.keySet(), e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     @Override
     public boolean setList(String key, List<?> list, long timeout, TimeUnit unit) {
         Assert.notNull(key, "Key cannot be null");
         Assert.notNull(list, "List cannot be null");
 
         try {
-            redisTemplate.delete(key);
-            redisTemplate.opsForList().rightPushAll(key, list.toArray());
+            if (list.isEmpty()) {
+                redisTemplate.delete(key);
+                return true;
+            }
+
+            List<byte[]> encodedList = list.stream().map(codecs::encode).toList();
+
+            replaceAtomically(key, timeout, unit,
+                (ops, tempKey) -> ops.opsForList().rightPushAll(tempKey, encodedList));
             return true;
         } catch (Exception e) {
             log.error("An error occurred while setting list: {}", key, e);
@@ -57,18 +152,112 @@ public class RedisServiceImpl implements RedisService {
         }
     }
 
+    @Override
+    public boolean setHash(String key, Map<String, ?> entries, long timeout, TimeUnit unit) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(entries, "Entries cannot be null");
+
+        try {
+            if (entries.isEmpty()) {
+                redisTemplate.delete(key);
+                return true;
+            }
+
+            Map<String, byte[]> encodedEntries = encodeValues(entries);
+
+            replaceAtomically(key, timeout, unit,
+                (ops, tempKey) -> ops.opsForHash().putAll(tempKey, encodedEntries));
+            return true;
+        } catch (Exception e) {
+            log.error("An error occurred while setting hash: {}", key, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean putHashEntryIfExists(String key, String field, Object value) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(field, "Field cannot be null");
+        Assert.notNull(value, "Value cannot be null");
+
+        try {
+            // The encoded value is passed as raw bytes, so binary formats survive the script call
+            return executeScript(HASH_PUT_IF_EXISTS_SCRIPT, List.of(key), field, codecs.encode(value)) == 1L;
+        } catch (Exception e) {
+            log.error("An error occurred while setting hash entry: {} {}", key, field, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean deleteHashEntry(String key, String field) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(field, "Field cannot be null");
+
+        try {
+            return redisTemplate.opsForHash().delete(key, field) > 0;
+        } catch (Exception e) {
+            log.error("An error occurred while deleting hash entry: {} {}", key, field, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     @Override
     public Object get(String key, Class<?> clazz) {
         Assert.notNull(key, "Key cannot be null");
 
         try {
-            return objectMapper.convertValue(redisTemplate.opsForValue().get(key), clazz);
+            return codecs.decode(redisTemplate.opsForValue().get(key), clazz);
         } catch (Exception e) {
             log.error("An error occurred while getting key: {}", key, e);
             throw new RuntimeException(e.getMessage());
         }
     }
 
+    @Override
+    public <T> CachedValue<T> getWithTtl(String key, Class<T> clazz) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(clazz, "Class cannot be null");
+
+        try {
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                    ops.opsForValue().get(key);
+                    ops.getExpire(key, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            });
+
+            return new CachedValue<>(codecs.decode((byte[]) results.get(0), clazz), (Long) results.get(1));
+        } catch (Exception e) {
+            log.error("An error occurred while getting key with ttl: {}", key, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public <T> List<T> multiGet(List<String> keys, Class<T> clazz) {
+        Assert.notNull(keys, "Keys cannot be null");
+        Assert.notNull(clazz, "Class cannot be null");
+
+        try {
+            if (keys.isEmpty()) {
+                return List.of();
+            }
+
+            return redisTemplate.opsForValue().multiGet(keys)
+                .stream()
+                .map(bytes -> codecs.decode(bytes, clazz))
+                .collect(Collectors.toList()); // Allows null elements for missing keys
+        } catch (Exception e) {
+            log.error("An error occurred while getting keys: {}", keys, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     @Override
     public <T> List<T> getList(String key, Class<T> clazz) {
         Assert.notNull(key, "Key cannot be null");
@@ -77,7 +266,7 @@ public class RedisServiceImpl implements RedisService {
         try {
             return redisTemplate.opsForList().range(key, 0, -1)
                 .stream()
-                .map(o -> objectMapper.convertValue(o, clazz))
+                .map(bytes -> codecs.decode(bytes, clazz))
                 .toList();
         } catch (Exception e) {
             log.error("An error occurred while getting list: {}", key, e);
@@ -85,18 +274,112 @@ public class RedisServiceImpl implements RedisService {
         }
     }
 
+    @Override
+    public <T> Map<String, T> getHash(String key, Class<T> clazz) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(clazz, "Class cannot be null");
+
+        try {
+            Map<String, T> hash = new LinkedHashMap<>();
+            redisTemplate.<String, byte[]>opsForHash().entries(key)
+                .forEach((field, bytes) -> hash.put(field, codecs.decode(bytes, clazz)));
+            return hash;
+        } catch (Exception e) {
+            log.error("An error occurred while getting hash: {}", key, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public <T> CachedValue<Map<String, T>> getHashWithTtl(String key, Class<T> clazz) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(clazz, "Class cannot be null");
+
+        try {
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                    ops.opsForHash().entries(key);
+                    ops.getExpire(key, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            });
+
+            Map<String, T> hash = new LinkedHashMap<>();
+            ((Map<?, ?>) results.get(0))
+                .forEach((field, bytes) -> hash.put((String) field, codecs.decode((byte[]) bytes, clazz)));
+            return new CachedValue<>(hash, (Long) results.get(1));
+        } catch (Exception e) {
+            log.error("An error occurred while getting hash with ttl: {}", key, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     @Override
     public Set<String> getKeysContaining(String pattern) {
         Assert.notNull(pattern, "Pattern cannot be null");
 
-        try {
-            return redisTemplate.keys("*" + pattern + "*");
+        try (Stream<String> keys = scanKeys("*" + pattern + "*", SCAN_COUNT)) {
+            return keys.collect(Collectors.toSet());
         } catch (Exception e) {
             log.error("An error occurred while getting keys containing: {}", pattern, e);
             throw new RuntimeException(e.getMessage());
         }
     }
 
+    @Override
+    public Stream<String> scanKeys(String pattern, long count) {
+        Assert.notNull(pattern, "Pattern cannot be null");
+        Assert.isTrue(count > 0, "Count must be greater than 0");
+
+        try {
+            // Each SCAN call only walks about COUNT slots of the keyspace, so Redis keeps serving other
+            // clients between calls; the next page is only fetched when the stream consumes it
+            ScanOptions options = ScanOptions.scanOptions().match(pattern).count(count).build();
+            if (redisTemplate.getRequiredConnectionFactory().isRedisClusterAware()) {
+                return scanCluster(options);
+            }
+
+            Cursor<String> cursor = redisTemplate.scan(options);
+            return cursor.stream();
+        } catch (Exception e) {
+            log.error("An error occurred while scanning keys matching: {}", pattern, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public long deleteKeysMatching(String pattern, int batchSize) {
+        Assert.notNull(pattern, "Pattern cannot be null");
+        Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+
+        long deleted = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+
+        try (Stream<String> keys = scanKeys(pattern, batchSize)) {
+            Iterator<String> iterator = keys.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+
+                if (batch.size() == batchSize) {
+                    deleted += unlink(batch);
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                deleted += unlink(batch);
+            }
+
+            return deleted;
+        } catch (Exception e) {
+            log.error("An error occurred while deleting keys matching: {}", pattern, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     @Override
     public boolean delete(String key) {
         Assert.notNull(key, "Key cannot be null");
@@ -133,6 +416,35 @@ public class RedisServiceImpl implements RedisService {
         }
     }
 
+    @Override
+    public boolean tryLock(String key, String token, long timeout, TimeUnit unit) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(token, "Token cannot be null");
+        Assert.isTrue(timeout > 0, "Timeout must be greater than 0");
+
+        try {
+            // SET NX PX: the lock expires on its own if its owner dies before releasing it
+            return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(key, token.getBytes(StandardCharsets.UTF_8), timeout, unit));
+        } catch (Exception e) {
+            log.error("An error occurred while acquiring lock: {}", key, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean unlock(String key, String token) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(token, "Token cannot be null");
+
+        try {
+            return executeScript(COMPARE_AND_DELETE_SCRIPT, List.of(key), token) == 1L;
+        } catch (Exception e) {
+            log.error("An error occurred while releasing lock: {}", key, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     @Override
     public Long increment(String key, long value) {
         Assert.notNull(key, "Key cannot be null");
@@ -144,4 +456,262 @@ public class RedisServiceImpl implements RedisService {
             throw new RuntimeException(e.getMessage());
         }
     }
+
+    @Override
+    public boolean addToSortedSet(String key, String member, double score) {
+        Assert.notNull(key, "Key cannot be null");
+        Assert.notNull(member, "Member cannot be null");
+
+        try {
+            // Members are plain UTF-8 strings, so ZRANGEBYLEX compares them as written
+            return Boolean.TRUE.equals(redisTemplate.opsForZSet().add(key, member.getBytes(StandardCharsets.UTF_8), score));
+        } catch (Exception e) {
+            log.error("An error occurred while adding to sorted set: {}", key, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public long getCounter(String key) {
+        Assert.notNull(key, "Key cannot be null");
+
+        try {
+            // INCRBY stores the counter as a plain decimal string, not as an encoded value
+            byte[] value = redisTemplate.opsForValue().get(key);
+            return value != null ? Long.parseLong(new String(value, StandardCharsets.UTF_8)) : 0;
+        } catch (Exception e) {
+            log.error("An error occurred while getting counter: {}", key, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        Assert.notNull(channel, "Channel cannot be null");
+        Assert.notNull(message, "Message cannot be null");
+
+        try {
+            // Sent as raw UTF-8 bytes rather than JSON so subscribers can read it without a serializer
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(
+                channel.getBytes(StandardCharsets.UTF_8), message.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            log.error("An error occurred while publishing to channel: {}", channel, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public List<Object> executePipelined(SessionCallback<?> session) {
+        Assert.notNull(session, "Session cannot be null");
+
+        try {
+            return redisTemplate.executePipelined(session);
+        } catch (Exception e) {
+            log.error("An error occurred while executing pipeline", e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public void executeBatch(Consumer<RedisWriteBatch> writes) {
+        Assert.notNull(writes, "Writes cannot be null");
+
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    writes.accept(new PipelinedWriteBatch((RedisOperations<String, byte[]>) operations));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("An error occurred while executing a write batch", e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T executeScript(RedisScript<T> script, List<String> keys, Object... args) {
+        Assert.notNull(script, "Script cannot be null");
+        Assert.notNull(keys, "Keys cannot be null");
+
+        try {
+            // RedisTemplate sends EVALSHA first and falls back to EVAL when the script cache has been flushed
+            return redisTemplate.execute(script, SCRIPT_ARGUMENT_SERIALIZER, (RedisSerializer<T>) SCRIPT_SERIALIZER, keys, args);
+        } catch (Exception e) {
+            log.error("An error occurred while executing script for keys: {}", keys, e);
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    // A cluster has no global keyspace to SCAN: scan every master in turn, on one cluster connection
+    private Stream<String> scanCluster(ScanOptions options) {
+        RedisClusterConnection connection = redisTemplate.getRequiredConnectionFactory().getClusterConnection();
+
+        try {
+            List<RedisClusterNode> masters = new ArrayList<>();
+            connection.clusterGetNodes().forEach(node -> {
+                if (node.isMaster()) {
+                    masters.add(node);
+                }
+            });
+
+            return masters.stream()
+                .flatMap(node -> connection.scan(node, options).stream())
+                .map(key -> new String(key, StandardCharsets.UTF_8))
+                .onClose(connection::close);
+        } catch (RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    // Write new content to a temporary key, then RENAME it over the key, in a single pipeline
+    private void replaceAtomically(String key, long timeout, TimeUnit unit,
+        BiConsumer<RedisOperations<String, byte[]>, String> writer) {
+        String tempKey = RedisKeys.sameSlot(key, TEMP_KEY_INFIX + UUID.randomUUID());
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, byte[]> ops = (RedisOperations<String, byte[]>) operations;
+                writer.accept(ops, tempKey);
+
+                // The expiration time moves with the key on RENAME
+                if (timeout > 0) {
+                    ops.expire(tempKey, timeout, unit);
+                } else {
+                    ops.expire(tempKey, TEMP_KEY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }
+
+                ops.rename(tempKey, key);
+
+                if (timeout <= 0) {
+                    ops.persist(key);
+                }
+
+                return null;
+            }
+        });
+    }
+
+    // UNLINK frees the memory in a background thread, so large values do not block the server
+    private long unlink(List<String> keys) {
+        Long unlinked = redisTemplate.unlink(keys);
+        return unlinked != null ? unlinked : 0;
+    }
+
+    private Map<String, byte[]> encodeValues(Map<String, ?> entries) {
+        Map<String, byte[]> encodedEntries = new LinkedHashMap<>();
+        entries.forEach((key, value) -> encodedEntries.put(key, codecs.encode(value)));
+        return encodedEntries;
+    }
+
+    /*
+     * Script arguments: encoded values (byte[]) are passed through untouched, anything else
+     * (limits, windows, fields) is sent as its plain string form so Lua's tonumber() can read it.
+     */
+    private static final class ScriptArgumentSerializer implements RedisSerializer<Object> {
+        @Override
+        public byte[] serialize(Object value) throws SerializationException {
+            if (value instanceof byte[] bytes) {
+                return bytes;
+            }
+
+            return value == null ? null : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) throws SerializationException {
+            return bytes;
+        }
+    }
+
+    // Queues each write on the pipeline of the session; replies are read once the pipeline closes
+    private final class PipelinedWriteBatch implements RedisWriteBatch {
+
+        private final RedisOperations<String, byte[]> ops;
+
+        private PipelinedWriteBatch(RedisOperations<String, byte[]> ops) {
+            this.ops = ops;
+        }
+
+        @Override
+        public void set(String key, Object value, long timeout, TimeUnit unit) {
+            Assert.notNull(key, "Key cannot be null");
+            Assert.notNull(value, "Value cannot be null");
+
+            if (timeout > 0) {
+                ops.opsForValue().set(key, codecs.encode(value), timeout, unit);
+            } else {
+                ops.opsForValue().set(key, codecs.encode(value));
+            }
+        }
+
+        @Override
+        public void putHashEntryIfExists(String key, String field, Object value) {
+            Assert.notNull(key, "Key cannot be null");
+            Assert.notNull(field, "Field cannot be null");
+            Assert.notNull(value, "Value cannot be null");
+
+            // The encoded value is passed as raw bytes, so binary formats survive the script call
+            executeScript(HASH_PUT_IF_EXISTS_SCRIPT, List.of(key), field, codecs.encode(value));
+        }
+
+        @Override
+        public void deleteHashEntry(String key, String field) {
+            Assert.notNull(key, "Key cannot be null");
+            Assert.notNull(field, "Field cannot be null");
+            ops.opsForHash().delete(key, field);
+        }
+
+        @Override
+        public void delete(String key) {
+            Assert.notNull(key, "Key cannot be null");
+            ops.delete(key);
+        }
+
+        @Override
+        public void increment(String key, long value) {
+            Assert.notNull(key, "Key cannot be null");
+            ops.opsForValue().increment(key, value);
+        }
+
+        @Override
+        public void expire(String key, long timeout, TimeUnit unit) {
+            Assert.notNull(key, "Key cannot be null");
+            ops.expire(key, timeout, unit);
+        }
+
+        @Override
+        public void publish(String channel, String message) {
+            Assert.notNull(channel, "Channel cannot be null");
+            Assert.notNull(message, "Message cannot be null");
+            ops.execute((RedisCallback<Long>) connection -> connection.publish(
+                channel.getBytes(StandardCharsets.UTF_8), message.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void executeScript(RedisScript<?> script, List<String> keys, Object... args) {
+            Assert.notNull(script, "Script cannot be null");
+            Assert.notNull(keys, "Keys cannot be null");
+
+            byte[][] keysAndArgs = new byte[keys.size() + args.length][];
+            for (int i = 0; i < keys.size(); i++) {
+                keysAndArgs[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+            }
+            for (int i = 0; i < args.length; i++) {
+                keysAndArgs[keys.size() + i] = SCRIPT_ARGUMENT_SERIALIZER.serialize(args[i]);
+            }
+
+            // EVAL rather than EVALSHA: a NOSCRIPT reply only shows up when the pipeline closes, too late to fall back
+            byte[] source = SCRIPT_SOURCES.computeIfAbsent(script.getSha1(),
+                sha1 -> script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+            ops.execute((RedisCallback<Object>) connection -> connection.scriptingCommands().eval(
+                source, ReturnType.fromJavaType(script.getResultType()), keys.size(), keysAndArgs));
+        }
+    }
 }
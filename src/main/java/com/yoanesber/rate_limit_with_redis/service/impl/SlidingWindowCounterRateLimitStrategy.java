@@ -0,0 +1,20 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+
+@Component
+public class SlidingWindowCounterRateLimitStrategy extends AbstractScriptRateLimitStrategy {
+
+    public SlidingWindowCounterRateLimitStrategy(@Qualifier("rateLimitRedisService") RedisService redisService) {
+        super(redisService, "scripts/sliding_window_counter.lua", "rate-limit:swc:");
+    }
+
+    @Override
+    public RateLimitAlgorithm getAlgorithm() {
+        return RateLimitAlgorithm.SLIDING_WINDOW_COUNTER;
+    }
+}
@@ -0,0 +1,20 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+
+@Component
+public class TokenBucketRateLimitStrategy extends AbstractScriptRateLimitStrategy {
+
+    public TokenBucketRateLimitStrategy(@Qualifier("rateLimitRedisService") RedisService redisService) {
+        super(redisService, "scripts/token_bucket.lua", "rate-limit:tb:");
+    }
+
+    @Override
+    public RateLimitAlgorithm getAlgorithm() {
+        return RateLimitAlgorithm.TOKEN_BUCKET;
+    }
+}
@@ -0,0 +1,38 @@
+package com.yoanesber.rate_limit_with_redis.util;
+
+/*
+ * Key layout for Redis Cluster.
+ * Redis Cluster hashes a key to a slot by its hash tag, the part between the first "{" and the
+ * next "}", or by the whole key when it has none. Keys are built with the id as hash tag, e.g.
+ * "department:{42}" or "rate-limit:{10.0.0.1.find-all-departments}", so that:
+ * 1. Keys spread across the shards by id, and rate limiting scales with the number of shards.
+ * 2. Keys derived from a key by adding a prefix or a suffix (its missing marker, its rebuild lock,
+ *    a temporary key RENAMEd over it) keep its hash tag, hence its slot; multi-key scripts and
+ *    pipelines on them never fail with CROSSSLOT.
+ */
+public final class RedisKeys {
+
+    private RedisKeys() {
+    }
+
+    // Key made of a prefix and a hash-tagged id, e.g. "department:{42}"
+    public static String tagged(String prefix, String id) {
+        return prefix + "{" + id + "}";
+    }
+
+    // Whether Redis Cluster hashes the key by a hash tag rather than by the whole key
+    public static boolean hasHashTag(String key) {
+        int open = key.indexOf('{');
+        if (open < 0) {
+            return false;
+        }
+
+        int close = key.indexOf('}', open + 1);
+        return close > open + 1;
+    }
+
+    // Key hashing to the same slot as the given key, made of the key and a suffix
+    public static String sameSlot(String key, String suffix) {
+        return hasHashTag(key) ? key + suffix : "{" + key + "}" + suffix;
+    }
+}
@@ -0,0 +1,13 @@
+-- Delete a key only when it still holds the given value.
+-- Releases a lock only if this client still owns it, never a lock that expired and was taken by another client.
+--
+-- KEYS[1] : key
+-- ARGV[1] : expected value
+--
+-- Returns 1 when the key was deleted, 0 otherwise
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+
+return 0
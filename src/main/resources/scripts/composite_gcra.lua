@@ -0,0 +1,65 @@
+-- Composite GCRA rate limit check of several limits (dimensions) executed atomically on the Redis server.
+-- Every dimension is checked before any is updated: the TATs are only advanced when all dimensions
+-- allow the request, so a request denied by one dimension consumes no quota of the others.
+-- See gcra.lua for the algorithm of a single dimension.
+--
+-- KEYS[i]      : key of dimension i (string holding its TAT in milliseconds)
+-- ARGV[2i - 1] : maximum number of requests allowed in the window of dimension i
+-- ARGV[2i]     : window length of dimension i in milliseconds
+--
+-- Returns { allowed (1/0), remaining requests, milliseconds until reset (retry-after when denied),
+--           index of the binding dimension (1-based) }
+-- The binding dimension is the one denying the request with the longest wait,
+-- or when the request is allowed the one with the fewest remaining requests.
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local new_tats = {}
+local allowed = 1
+local binding = 1
+local remaining = -1
+local reset = 0
+
+for i = 1, #KEYS do
+    local max_requests = tonumber(ARGV[2 * i - 1])
+    local window = tonumber(ARGV[2 * i])
+    local emission_interval = window / max_requests
+
+    local tat = tonumber(redis.call('GET', KEYS[i])) or now
+    tat = math.max(tat, now)
+
+    local new_tat = tat + emission_interval
+    local allow_at = new_tat - window
+    new_tats[i] = new_tat
+
+    if allow_at > now then
+        local retry_after = math.max(math.ceil(allow_at - now), 1)
+        if allowed == 1 or retry_after > reset then
+            binding = i
+            reset = retry_after
+        end
+        allowed = 0
+    elseif allowed == 1 then
+        local left = math.floor((now - allow_at) / emission_interval)
+        if remaining < 0 or left < remaining then
+            binding = i
+            remaining = left
+            reset = math.max(math.ceil(new_tat - now), 1)
+        end
+    end
+end
+
+if allowed == 0 then
+    return { 0, 0, reset, binding }
+end
+
+for i = 1, #KEYS do
+    redis.call('SET', KEYS[i], new_tats[i], 'PX', math.max(math.ceil(new_tats[i] - now), 1))
+end
+
+return { 1, remaining, reset, binding }
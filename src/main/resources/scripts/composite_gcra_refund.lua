@@ -0,0 +1,35 @@
+-- Give back a request admitted by composite_gcra.lua on some dimensions, once a dimension on
+-- another cluster slot denied it. The TAT of each dimension moves back by one emission interval,
+-- which undoes exactly one admission, and never before now.
+--
+-- KEYS[i]      : key of dimension i (string holding its TAT in milliseconds)
+-- ARGV[2i - 1] : maximum number of requests allowed in the window of dimension i
+-- ARGV[2i]     : window length of dimension i in milliseconds
+--
+-- Returns the number of dimensions refunded
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local refunded = 0
+
+for i = 1, #KEYS do
+    local tat = tonumber(redis.call('GET', KEYS[i]))
+    if tat then
+        local emission_interval = tonumber(ARGV[2 * i]) / tonumber(ARGV[2 * i - 1])
+        local new_tat = tat - emission_interval
+
+        if new_tat > now then
+            redis.call('SET', KEYS[i], new_tat, 'PX', math.max(math.ceil(new_tat - now), 1))
+        else
+            redis.call('DEL', KEYS[i])
+        end
+        refunded = refunded + 1
+    end
+end
+
+return refunded
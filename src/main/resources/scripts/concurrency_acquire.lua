@@ -0,0 +1,45 @@
+-- Concurrency (in-flight) limit: take a slot for a request, executed atomically on the Redis server.
+-- Slots are leases: sorted set members scored by their expiration in milliseconds. A node renews
+-- the leases of its running requests; the leases of a crashed node expire and are dropped here,
+-- so its slots are given back without it having to release them.
+--
+-- KEYS[1] : sorted set of the slots held by the client key
+-- KEYS[2] : sorted set of the slots held on the whole route
+-- ARGV[1] : permit id
+-- ARGV[2] : maximum number of in-flight requests of the client key
+-- ARGV[3] : maximum number of in-flight requests on the route, 0 for no route limit
+-- ARGV[4] : lease length in milliseconds
+--
+-- Returns { acquired (1/0), limit reached (0 none, 1 client key, 2 route), in-flight requests of the client key }
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local key_limit = tonumber(ARGV[2])
+local route_limit = tonumber(ARGV[3])
+local lease = tonumber(ARGV[4])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now)
+local in_flight = redis.call('ZCARD', KEYS[1])
+if in_flight >= key_limit then
+    return { 0, 1, in_flight }
+end
+
+if route_limit > 0 then
+    redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', now)
+    if redis.call('ZCARD', KEYS[2]) >= route_limit then
+        return { 0, 2, in_flight }
+    end
+
+    redis.call('ZADD', KEYS[2], now + lease, ARGV[1])
+    redis.call('PEXPIRE', KEYS[2], lease)
+end
+
+redis.call('ZADD', KEYS[1], now + lease, ARGV[1])
+redis.call('PEXPIRE', KEYS[1], lease)
+
+return { 1, 0, in_flight + 1 }
@@ -0,0 +1,13 @@
+-- Give back the slot of a completed request.
+--
+-- KEYS[*] : sorted sets holding the slot (client key, route)
+-- ARGV[1] : permit id
+--
+-- Returns the number of sorted sets the slot was removed from
+
+local released = 0
+for i = 1, #KEYS do
+    released = released + redis.call('ZREM', KEYS[i], ARGV[1])
+end
+
+return released
@@ -0,0 +1,28 @@
+-- Extend the lease of a running request's slot in every sorted set holding it.
+-- A slot that already expired is not taken again; its request keeps running untracked.
+--
+-- KEYS[*] : sorted sets holding the slot (client key, route)
+-- ARGV[1] : permit id
+-- ARGV[2] : lease length in milliseconds
+--
+-- Returns the number of sorted sets in which the lease was extended
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local lease = tonumber(ARGV[2])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local renewed = 0
+for i = 1, #KEYS do
+    if redis.call('ZSCORE', KEYS[i], ARGV[1]) then
+        redis.call('ZADD', KEYS[i], now + lease, ARGV[1])
+        redis.call('PEXPIRE', KEYS[i], lease)
+        renewed = renewed + 1
+    end
+end
+
+return renewed
@@ -0,0 +1,34 @@
+-- Fixed window rate limit check executed atomically on the Redis server.
+--
+-- KEYS[1] : rate limit key
+-- ARGV[1] : maximum number of requests allowed in the window
+-- ARGV[2] : window length in milliseconds
+-- ARGV[3] : permits consumed by the request (optional, defaults to 1)
+-- ARGV[4] : 1 to consume the permits even beyond the limit, when settling the cost of a served request
+--
+-- Returns { allowed (1/0), remaining requests, milliseconds until the window resets }
+
+local max_requests = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local permits = tonumber(ARGV[3]) or 1
+local settle = ARGV[4] == '1'
+
+-- A denied request consumes nothing, so a costly request cannot lock out cheaper ones
+local count = tonumber(redis.call('GET', KEYS[1])) or 0
+local ttl = redis.call('PTTL', KEYS[1])
+if count + permits > max_requests and not settle then
+    if ttl < 0 then
+        ttl = window
+    end
+    return { 0, math.max(max_requests - count, 0), ttl }
+end
+
+count = redis.call('INCRBY', KEYS[1], permits)
+
+-- Start the window on the first request; also repairs counters left without a TTL
+if count == permits or ttl < 0 then
+    redis.call('PEXPIRE', KEYS[1], window)
+    ttl = window
+end
+
+return { 1, math.max(max_requests - count, 0), ttl }
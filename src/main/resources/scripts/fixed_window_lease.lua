@@ -0,0 +1,30 @@
+-- Fixed window lease executed atomically on the Redis server.
+-- Reserves up to ARGV[3] requests of the window at once (one INCRBY) so that a node can
+-- admit them locally; whatever exceeds the limit is given back so other nodes can use it.
+--
+-- KEYS[1] : rate limit key (same counter as fixed_window.lua)
+-- ARGV[1] : maximum number of requests allowed in the window
+-- ARGV[2] : window length in milliseconds
+-- ARGV[3] : number of requests to reserve
+--
+-- Returns { granted requests, remaining requests, milliseconds until the window resets }
+
+local max_requests = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local lease_size = tonumber(ARGV[3])
+
+local count = redis.call('INCRBY', KEYS[1], lease_size)
+
+-- Start the window on the first lease; also repairs counters left without a TTL
+local ttl = redis.call('PTTL', KEYS[1])
+if count == lease_size or ttl < 0 then
+    redis.call('PEXPIRE', KEYS[1], window)
+    ttl = window
+end
+
+local granted = math.max(math.min(lease_size, max_requests - (count - lease_size)), 0)
+if granted < lease_size then
+    count = redis.call('DECRBY', KEYS[1], lease_size - granted)
+end
+
+return { granted, math.max(max_requests - count, 0), ttl }
@@ -0,0 +1,41 @@
+-- Generic Cell Rate Algorithm (GCRA) rate limit check executed atomically on the Redis server.
+-- Only the theoretical arrival time (TAT) of the next request is stored, so the state per key
+-- is a single string holding one number. Allows a burst of ARGV[1] requests, then spaces
+-- requests evenly at ARGV[2] / ARGV[1] milliseconds.
+--
+-- KEYS[1] : rate limit key (string holding the TAT in milliseconds)
+-- ARGV[1] : maximum number of requests allowed in the window
+-- ARGV[2] : window length in milliseconds
+-- ARGV[3] : permits consumed by the request (optional, defaults to 1)
+-- ARGV[4] : 1 to consume the permits even beyond the limit, when settling the cost of a served request;
+--           the TAT then moves past the window and later requests wait for it
+--
+-- Returns { allowed (1/0), remaining requests, milliseconds until reset (retry-after when denied) }
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local max_requests = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local emission_interval = window / max_requests
+local permits = tonumber(ARGV[3]) or 1
+local settle = ARGV[4] == '1'
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local tat = tonumber(redis.call('GET', KEYS[1])) or now
+tat = math.max(tat, now)
+
+local new_tat = tat + emission_interval * permits
+local allow_at = new_tat - window
+
+if allow_at > now and not settle then
+    return { 0, 0, math.max(math.ceil(allow_at - now), 1) }
+end
+
+local reset = math.max(math.ceil(new_tat - now), 1)
+redis.call('SET', KEYS[1], new_tat, 'PX', reset)
+
+return { 1, math.max(math.floor((now - allow_at) / emission_interval), 0), reset }
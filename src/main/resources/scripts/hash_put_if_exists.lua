@@ -0,0 +1,15 @@
+-- Set a field of a hash only when the hash already exists.
+-- Keeps incremental cache updates from creating a partial hash that readers would take as complete.
+--
+-- KEYS[1] : hash key
+-- ARGV[1] : field
+-- ARGV[2] : serialized value
+--
+-- Returns 1 when the field was written, 0 when the hash does not exist
+
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+    return 1
+end
+
+return 0
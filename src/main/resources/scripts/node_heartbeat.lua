@@ -0,0 +1,23 @@
+-- Register a node as alive and count the live nodes.
+-- Each node refreshes its entry periodically; entries not refreshed within the TTL are dropped.
+--
+-- KEYS[1] : sorted set of node ids scored by their last heartbeat in milliseconds
+-- ARGV[1] : node id
+-- ARGV[2] : heartbeat TTL in milliseconds
+--
+-- Returns the number of live nodes, this one included
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local ttl = tonumber(ARGV[2])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+redis.call('ZADD', KEYS[1], now, ARGV[1])
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - ttl)
+redis.call('PEXPIRE', KEYS[1], ttl)
+
+return redis.call('ZCARD', KEYS[1])
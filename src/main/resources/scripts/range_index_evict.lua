@@ -0,0 +1,43 @@
+-- Delete the cached ranges of ids that contain an id, e.g. the cached pages of a keyset pagination.
+-- The ranges are indexed in a sorted set whose members all have score 0, so they sort by their bytes:
+-- "<last id>\0<after>\0<key>" for the range (after, last id] cached under key. A range open at its
+-- end (the last page) has a last id sorting after every id. The keys of the ranges share the hash
+-- tag of the index, so the script only touches a single cluster slot.
+--
+-- KEYS[1] : index
+-- ARGV[1] : id
+--
+-- Returns the number of ranges deleted
+
+local id = ARGV[1]
+
+-- Byte order, like ZRANGEBYLEX; Lua's < compares strings with the locale of the server
+local function before(a, b)
+    local length = math.min(#a, #b)
+    for i = 1, length do
+        local x, y = string.byte(a, i), string.byte(b, i)
+        if x ~= y then
+            return x < y
+        end
+    end
+    return #a < #b
+end
+
+local deleted = 0
+
+-- Ranges whose last id is not before the id, the ones also starting before it contain it
+for _, member in ipairs(redis.call('ZRANGEBYLEX', KEYS[1], '[' .. id, '+')) do
+    local after, key = string.match(member, '^[^%z]*%z([^%z]*)%z(.+)$')
+    if after == nil then
+        redis.call('ZREM', KEYS[1], member)
+    elseif before(after, id) then
+        redis.call('UNLINK', key)
+        redis.call('ZREM', KEYS[1], member)
+        deleted = deleted + 1
+    elseif redis.call('EXISTS', key) == 0 then
+        -- The range expired on its own
+        redis.call('ZREM', KEYS[1], member)
+    end
+end
+
+return deleted
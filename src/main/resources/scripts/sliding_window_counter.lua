@@ -0,0 +1,57 @@
+-- Sliding window counter rate limit check executed atomically on the Redis server.
+-- The previous window's count is weighted by how much of it still overlaps the sliding window,
+-- so bursts across a window boundary cannot exceed the limit. State is a single small hash.
+--
+-- KEYS[1] : rate limit key (hash with fields w = window index, c = current count, p = previous count)
+-- ARGV[1] : maximum number of requests allowed in the window
+-- ARGV[2] : window length in milliseconds
+-- ARGV[3] : permits consumed by the request (optional, defaults to 1)
+-- ARGV[4] : 1 to consume the permits even beyond the limit, when settling the cost of a served request
+--
+-- Returns { allowed (1/0), remaining requests, milliseconds until reset (retry-after when denied) }
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local max_requests = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local permits = tonumber(ARGV[3]) or 1
+local settle = ARGV[4] == '1'
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local current_window = math.floor(now / window)
+local elapsed = now - current_window * window
+
+local state = redis.call('HMGET', KEYS[1], 'w', 'c', 'p')
+local stored_window = tonumber(state[1])
+local current = tonumber(state[2]) or 0
+local previous = tonumber(state[3]) or 0
+
+-- Roll the counters forward when the stored window is no longer the current one
+if stored_window == nil then
+    current, previous = 0, 0
+elseif stored_window == current_window - 1 then
+    current, previous = 0, current
+elseif stored_window ~= current_window then
+    current, previous = 0, 0
+end
+
+local estimated = previous * (window - elapsed) / window + current
+
+if estimated + permits <= max_requests or settle then
+    current = current + permits
+    redis.call('HSET', KEYS[1], 'w', current_window, 'c', current, 'p', previous)
+    redis.call('PEXPIRE', KEYS[1], 2 * window - elapsed)
+    return { 1, math.max(math.floor(max_requests - estimated - permits), 0), window - elapsed }
+end
+
+-- Denied: wait until enough of the previous window has slid out, or until the next window
+local retry_after = window - elapsed
+if previous > 0 and current + permits <= max_requests then
+    local overlap = (max_requests - current - permits) / previous
+    retry_after = math.max(math.ceil(window * (1 - overlap) - elapsed), 1)
+end
+
+return { 0, 0, retry_after }
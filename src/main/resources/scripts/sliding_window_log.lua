@@ -0,0 +1,47 @@
+-- Sliding window log rate limit check executed atomically on the Redis server.
+-- Every admitted request is recorded in a sorted set scored by its timestamp, which gives an
+-- exact count at the cost of one entry per permit (bounded by the limit) per key.
+--
+-- KEYS[1] : rate limit key (sorted set of request timestamps)
+-- ARGV[1] : maximum number of requests allowed in the window
+-- ARGV[2] : window length in milliseconds
+-- ARGV[3] : permits consumed by the request (optional, defaults to 1)
+-- ARGV[4] : 1 to consume the permits even beyond the limit, when settling the cost of a served request
+--
+-- Returns { allowed (1/0), remaining requests, milliseconds until reset (retry-after when denied) }
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local max_requests = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local permits = tonumber(ARGV[3]) or 1
+local settle = ARGV[4] == '1'
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+-- Drop the requests that have slid out of the window
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+local count = redis.call('ZCARD', KEYS[1])
+
+local allowed = 0
+if count + permits <= max_requests or settle then
+    -- Members must be unique; scripts never run concurrently, so time plus count is enough
+    for i = 1, permits do
+        redis.call('ZADD', KEYS[1], now, time[1] .. '.' .. time[2] .. ':' .. (count + i - 1))
+    end
+    redis.call('PEXPIRE', KEYS[1], window)
+    count = count + permits
+    allowed = 1
+end
+
+-- The window frees up a slot when its oldest request slides out
+local reset = window
+local oldest = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')
+if oldest[2] then
+    reset = math.max(tonumber(oldest[2]) + window - now, 1)
+end
+
+return { allowed, math.max(max_requests - count, 0), reset }
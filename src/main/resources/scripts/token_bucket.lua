@@ -0,0 +1,49 @@
+-- Token bucket rate limit check executed atomically on the Redis server.
+-- The bucket holds up to ARGV[1] tokens and refills continuously at ARGV[1] tokens per window.
+-- State is a single small hash holding the token count and the last refill time.
+--
+-- KEYS[1] : rate limit key (hash with fields t = tokens, ts = last refill time in milliseconds)
+-- ARGV[1] : bucket capacity (maximum burst)
+-- ARGV[2] : time in milliseconds to refill the whole bucket
+-- ARGV[3] : tokens consumed by the request (optional, defaults to 1)
+-- ARGV[4] : 1 to consume the tokens even beyond the limit, when settling the cost of a served request;
+--           the bucket then goes negative and refills before admitting anything again
+--
+-- Returns { allowed (1/0), remaining tokens, milliseconds until reset (retry-after when denied) }
+
+if redis.replicate_commands then
+    redis.replicate_commands() -- Required before writing after TIME on Redis < 7
+end
+
+local capacity = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local rate = capacity / window -- tokens per millisecond
+local permits = tonumber(ARGV[3]) or 1
+local settle = ARGV[4] == '1'
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', KEYS[1], 't', 'ts')
+local tokens = tonumber(state[1])
+local last_refill = tonumber(state[2])
+
+if tokens == nil or last_refill == nil then
+    tokens = capacity
+    last_refill = now
+end
+
+tokens = math.min(capacity, tokens + math.max(now - last_refill, 0) * rate)
+
+if tokens < permits and not settle then
+    return { 0, 0, math.max(math.ceil((permits - tokens) / rate), 1) }
+end
+
+tokens = tokens - permits
+
+-- Once the bucket would be full again the key is indistinguishable from a missing one
+local refill_time = math.max(math.ceil((capacity - tokens) / rate), 1)
+redis.call('HSET', KEYS[1], 't', tokens, 'ts', now)
+redis.call('PEXPIRE', KEYS[1], refill_time)
+
+return { 1, math.max(math.floor(tokens), 0), refill_time }
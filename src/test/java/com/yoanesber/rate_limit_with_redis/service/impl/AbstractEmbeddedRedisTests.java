@@ -0,0 +1,77 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import com.yoanesber.rate_limit_with_redis.codec.ValueCodecRegistry;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+
+/*
+ * Base class for tests running the Lua scripts on a real Redis server.
+ * An embedded Redis server is started once per test class on a free port, with the binary template
+ * and the RedisServiceImpl the application builds in RedisConfig; the data is flushed before each test.
+ * The scripts read the time from Redis, so tests of expirations wait for them with short windows.
+ */
+abstract class AbstractEmbeddedRedisTests {
+
+    private static RedisServer redisServer;
+
+    protected static LettuceConnectionFactory connectionFactory;
+    protected static RedisTemplate<String, byte[]> redisTemplate;
+    protected static RedisService redisService;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port = freePort();
+        redisServer = new RedisServer(port);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.afterPropertiesSet();
+
+        redisService = new RedisServiceImpl(new ValueCodecRegistry(new ObjectMapper().findAndRegisterModules(), "json", 0),
+            redisTemplate);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        try {
+            connectionFactory.destroy();
+        } finally {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void flushRedis() {
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.yoanesber.rate_limit_with_redis.config.CacheProperties;
+import com.yoanesber.rate_limit_with_redis.entity.CachedValue;
+import com.yoanesber.rate_limit_with_redis.metrics.CacheMetrics;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.service.RedisWriteBatch;
+
+class CacheLoadingServiceTests {
+
+    private static final String KEYSPACE = "department";
+    private static final String KEY = "department:{d001}";
+    private static final int THREADS = 8;
+
+    private RedisService redisService;
+    private CacheLoadingServiceImpl cacheLoadingService;
+    private ExecutorService executor;
+
+    // What the fake cache holds under KEY; null is a miss
+    private final AtomicReference<String> cached = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        redisService = mock(RedisService.class);
+        when(redisService.tryLock(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.setTtlJitter(0);
+
+        cacheLoadingService = new CacheLoadingServiceImpl(redisService, new CacheTtlPolicy(cacheProperties),
+            new CacheMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(cacheLoadingService, "lockTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(cacheLoadingService, "lockWaitMillis", 2000L);
+        ReflectionTestUtils.setField(cacheLoadingService, "retryIntervalMillis", 10L);
+        ReflectionTestUtils.setField(cacheLoadingService, "earlyRefreshBeta", 0.0);
+        ReflectionTestUtils.setField(cacheLoadingService, "versionTtlMillis", 600000L);
+        ReflectionTestUtils.setField(cacheLoadingService, "maxTrackedKeys", 100);
+
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void loadsAMissingKeyOnceForConcurrentMisses() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+                return getOrLoad(() -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "Engineering";
+                });
+            }));
+        }
+
+        // Every thread is parked: one in the loader, the others waiting for its result
+        awaitAllWaiting(threads, THREADS);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Engineering");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(cached).hasValue("Engineering");
+    }
+
+    @Test
+    void failsTheWaitingThreadsWithTheLoaderAndLoadsAgainOnTheNextMiss() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            results.add(executor.submit(() -> {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+                return getOrLoad(() -> {
+                    await(release);
+                    throw new IllegalStateException("Database unavailable");
+                });
+            }));
+        }
+
+        awaitAllWaiting(threads, 2);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        }
+
+        // A failure is not remembered, the next lookup loads the key again
+        assertThat(getOrLoad(() -> "Engineering")).isEqualTo("Engineering");
+    }
+
+    @Test
+    void waitsForTheNodeHoldingTheRebuildLockInsteadOfLoading() {
+        when(redisService.tryLock(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(false);
+        AtomicInteger reads = new AtomicInteger();
+
+        // Another node writes the key while this one polls for it
+        String value = cacheLoadingService.getOrLoad(KEYSPACE, KEY,
+            () -> new CachedValue<>(reads.incrementAndGet() < 3 ? null : "Engineering", -1L),
+            () -> {
+                throw new AssertionError("The key must not be loaded by a node without the lock");
+            },
+            cached::set);
+
+        assertThat(value).isEqualTo("Engineering");
+        verify(redisService, never()).unlock(anyString(), anyString());
+    }
+
+    @Test
+    void stopsWaitingForTheRebuildLockWhenTheOtherNodeFoundTheKeyMissing() {
+        when(redisService.tryLock(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(false);
+
+        // The node holding the lock marks the key as missing after the first lookup
+        when(redisService.exists("missing:" + KEY)).thenReturn(false, true);
+
+        assertThat(getOrLoad(() -> {
+            throw new AssertionError("A key found missing by another node must not be loaded");
+        })).isNull();
+    }
+
+    @Test
+    void doesNotLoadAKeyFoundMissingBetweenTheMissAndTheLock() {
+        when(redisService.exists("missing:" + KEY)).thenReturn(false, true);
+
+        assertThat(getOrLoad(() -> {
+            throw new AssertionError("A key found missing by another node must not be loaded");
+        })).isNull();
+        verify(redisService).unlock(eq("rebuild-lock:" + KEY), anyString());
+    }
+
+    @Test
+    void remembersAKeyTheLoaderDidNotFindAsMissing() {
+        assertThat(getOrLoad(() -> null)).isNull();
+        verify(redisService).set(eq("missing:" + KEY), eq(Boolean.TRUE), eq(30000L), eq(TimeUnit.MILLISECONDS));
+
+        when(redisService.exists("missing:" + KEY)).thenReturn(true);
+        assertThat(getOrLoad(() -> {
+            throw new AssertionError("A key remembered as missing must not be loaded");
+        })).isNull();
+    }
+
+    @Test
+    void dropsALoadedValueWhenTheKeyWasUpdatedDuringTheLoad() {
+        // The version read before the load differs from the one read after the write
+        when(redisService.getCounter(KEY + ":version")).thenReturn(0L, 1L);
+
+        assertThat(getOrLoad(() -> "Stale")).isEqualTo("Stale");
+        verify(redisService).delete(KEY);
+    }
+
+    @Test
+    void keepsALoadedValueWhenNoUpdateBeganDuringTheLoad() {
+        when(redisService.getCounter(KEY + ":version")).thenReturn(3L);
+
+        assertThat(getOrLoad(() -> "Engineering")).isEqualTo("Engineering");
+        assertThat(cached).hasValue("Engineering");
+        verify(redisService, never()).delete(anyString());
+    }
+
+    @Test
+    void fencesLoadsByTheGivenFenceKey() {
+        // The fence key has no hash tag, its version key gets one
+        when(redisService.getCounter("{department-pages}:version")).thenReturn(0L, 1L);
+
+        String value = cacheLoadingService.getOrLoad("department-page", "{department-pages}:0:25", "department-pages",
+            () -> new CachedValue<>(null, -2L), () -> "Page", page -> { });
+
+        assertThat(value).isEqualTo("Page");
+        verify(redisService).delete("{department-pages}:0:25");
+    }
+
+    @Test
+    void beginUpdateQueuesTheVersionIncrementBeforeTheWrites() {
+        RedisWriteBatch writes = mock(RedisWriteBatch.class);
+
+        cacheLoadingService.beginUpdate(KEY, writes);
+
+        InOrder inOrder = inOrder(writes);
+        inOrder.verify(writes).increment(KEY + ":version", 1);
+        inOrder.verify(writes).expire(KEY + ":version", 600000L, TimeUnit.MILLISECONDS);
+        inOrder.verify(writes).delete("missing:" + KEY);
+    }
+
+    private String getOrLoad(Supplier<String> loader) {
+        return cacheLoadingService.getOrLoad(KEYSPACE, KEY, () -> new CachedValue<>(cached.get(), -1L), loader, cached::set);
+    }
+
+    private static void awaitAllWaiting(List<Thread> threads, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (threads) {
+                if (threads.size() == count && threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+                    return;
+                }
+            }
+            Thread.sleep(10);
+        }
+
+        throw new AssertionError("Threads did not block on the load in time");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+import com.yoanesber.rate_limit_with_redis.service.RedisWriteBatch;
+
+class CacheUpdateServiceTests {
+
+    private RedisService redisService;
+    private CacheUpdateServiceImpl cacheUpdateService;
+    private ExecutorService executor;
+
+    // Updates in the order their writes reached the batch
+    private final List<String> applied = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        redisService = mock(RedisService.class);
+        doAnswer(invocation -> {
+            Consumer<RedisWriteBatch> writes = invocation.getArgument(0);
+            writes.accept(mock(RedisWriteBatch.class));
+
+            // The first batch stays in flight until the test releases it
+            if (firstBatchStarted.getCount() > 0) {
+                firstBatchStarted.countDown();
+                releaseFirstBatch.await();
+            }
+            return null;
+        }).when(redisService).executeBatch(any());
+
+        cacheUpdateService = new CacheUpdateServiceImpl(redisService);
+        ReflectionTestUtils.setField(cacheUpdateService, "enabled", true);
+        ReflectionTestUtils.setField(cacheUpdateService, "queueCapacity", 1);
+        ReflectionTestUtils.setField(cacheUpdateService, "batchSize", 1);
+        ReflectionTestUtils.setField(cacheUpdateService, "offerTimeoutMillis", 10L);
+        ReflectionTestUtils.setField(cacheUpdateService, "shutdownTimeoutMillis", 5000L);
+        cacheUpdateService.start();
+
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        releaseFirstBatch.countDown();
+        executor.shutdownNow();
+        cacheUpdateService.stop();
+    }
+
+    @Test
+    void waitsForRoomInsteadOfOvertakingAnUpdateInFlight() throws Exception {
+        submit("department:{d001}", "d001 v1");
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        submit("department:{d002}", "d002 v1");
+
+        // The queue is full and the first update of d001 is still being applied
+        Future<?> second = executor.submit(() -> submit("department:{d001}", "d001 v2"));
+        Thread.sleep(200);
+        assertThat(second.isDone()).isFalse();
+        assertThat(applied).containsExactly("d001 v1");
+
+        releaseFirstBatch.countDown();
+        second.get(5, TimeUnit.SECONDS);
+        cacheUpdateService.stop();
+
+        assertThat(applied).containsExactly("d001 v1", "d002 v1", "d001 v2");
+    }
+
+    @Test
+    void queuesUpdatesSubmittedWhileTheWorkerIsStillDraining() throws Exception {
+        submit("department:{d001}", "d001 v1");
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Stopping lets the worker finish; an update submitted meanwhile still goes after the one in flight
+        Future<?> stopping = executor.submit(() -> {
+            cacheUpdateService.stop();
+            return null;
+        });
+        Thread.sleep(100);
+        submit("department:{d001}", "d001 v2");
+        assertThat(applied).containsExactly("d001 v1");
+
+        releaseFirstBatch.countDown();
+        stopping.get(5, TimeUnit.SECONDS);
+
+        assertThat(applied).containsExactly("d001 v1", "d001 v2");
+
+        // Once drained, there is no worker left to overtake: the caller applies its update
+        submit("department:{d001}", "d001 v3");
+        assertThat(applied).containsExactly("d001 v1", "d001 v2", "d001 v3");
+    }
+
+    private void submit(String key, String update) {
+        cacheUpdateService.submitAfterCommit(key, writes -> applied.add(update));
+    }
+}
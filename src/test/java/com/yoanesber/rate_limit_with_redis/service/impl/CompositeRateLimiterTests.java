@@ -0,0 +1,134 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.yoanesber.rate_limit_with_redis.entity.CompositeRateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDimension;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+
+class CompositeRateLimiterTests extends AbstractEmbeddedRedisTests {
+
+    private static final String ROUTE = "find-all-departments";
+    private static final long WINDOW_MILLIS = 60000;
+
+    private CompositeRateLimiter compositeRateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        compositeRateLimiter = new CompositeRateLimiter(redisService);
+    }
+
+    @Test
+    void reportsTheDimensionWithTheFewestRemainingRequests() {
+        CompositeRateLimitDecision decision = compositeRateLimiter.evaluate(ROUTE, List.of(
+            new RateLimitDimension("tenant", "acme", 10, WINDOW_MILLIS),
+            new RateLimitDimension("ip", "10.0.0.1", 3, WINDOW_MILLIS)));
+
+        assertThat(decision.isAllowed()).isTrue();
+        assertThat(decision.getDimension()).isEqualTo("ip");
+        assertThat(decision.getLimit()).isEqualTo(3);
+        assertThat(decision.getRemaining()).isEqualTo(2);
+    }
+
+    @Test
+    void deniesWithTheDimensionOverItsLimit() {
+        List<RateLimitDimension> dimensions = List.of(
+            new RateLimitDimension("ip", "10.0.0.1", 1, WINDOW_MILLIS),
+            new RateLimitDimension("api-key", "10.0.0.1", 5, WINDOW_MILLIS));
+
+        assertThat(compositeRateLimiter.evaluate(ROUTE, dimensions).isAllowed()).isTrue();
+
+        CompositeRateLimitDecision denied = compositeRateLimiter.evaluate(ROUTE, dimensions);
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getDimension()).isEqualTo("ip");
+        assertThat(denied.getLimit()).isEqualTo(1);
+        assertThat(denied.getResetAfterMillis()).isBetween(1L, WINDOW_MILLIS);
+    }
+
+    @Test
+    void checksAllDimensionsInOneScriptCallOutsideACluster() {
+        RedisService countingService = spy(redisService);
+        CompositeRateLimiter limiter = new CompositeRateLimiter(countingService);
+
+        limiter.evaluate(ROUTE, List.of(
+            new RateLimitDimension("tenant", "acme", 10, WINDOW_MILLIS),
+            new RateLimitDimension("ip", "10.0.0.1", 10, WINDOW_MILLIS),
+            new RateLimitDimension("global", "global", 100, WINDOW_MILLIS)));
+
+        verify(countingService, times(1)).executeScript(any(), anyList(), any(Object[].class));
+    }
+
+    @Test
+    void consumesNoQuotaOfADimensionWhenAnotherDenies() {
+        assertOnlyAdmittedRequestsUseTheTenantQuota(compositeRateLimiter);
+    }
+
+    @Test
+    void refundsTheSlotsThatAdmittedARequestDeniedByAnotherSlotInACluster() {
+        ReflectionTestUtils.setField(compositeRateLimiter, "redisMode", "cluster");
+
+        assertOnlyAdmittedRequestsUseTheTenantQuota(compositeRateLimiter);
+    }
+
+    @Test
+    void refundsTheSlotsThatAdmittedARequestWhenALaterSlotFailsInACluster() {
+        RedisService failingService = spy(redisService);
+        CompositeRateLimiter limiter = new CompositeRateLimiter(failingService);
+        ReflectionTestUtils.setField(limiter, "redisMode", "cluster");
+
+        // The second slot, the IP address, cannot be checked
+        doThrow(new RuntimeException("Command timed out")).when(failingService).executeScript(any(),
+            eq(List.of("rate-limit:composite:{find-all-departments:10.0.0.1}:ip")), any(Object[].class));
+
+        assertThatThrownBy(() -> limiter.evaluate(ROUTE, List.of(
+            new RateLimitDimension("tenant", "acme", 10, WINDOW_MILLIS),
+            new RateLimitDimension("ip", "10.0.0.1", 1, WINDOW_MILLIS)))).isInstanceOf(RuntimeException.class);
+
+        // The tenant admission was given back
+        assertThat(redisService.exists("rate-limit:composite:{find-all-departments:acme}:tenant")).isFalse();
+    }
+
+    private static void assertOnlyAdmittedRequestsUseTheTenantQuota(CompositeRateLimiter limiter) {
+        List<RateLimitDimension> dimensions = List.of(
+            new RateLimitDimension("tenant", "acme", 10, WINDOW_MILLIS),
+            new RateLimitDimension("ip", "10.0.0.1", 1, WINDOW_MILLIS));
+
+        assertThat(limiter.evaluate(ROUTE, dimensions).isAllowed()).isTrue();
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.evaluate(ROUTE, dimensions).isAllowed()).isFalse();
+        }
+
+        // Only the first request used the tenant quota
+        CompositeRateLimitDecision decision = limiter.evaluate(ROUTE, List.of(
+            new RateLimitDimension("tenant", "acme", 10, WINDOW_MILLIS),
+            new RateLimitDimension("ip", "10.0.0.2", 10, WINDOW_MILLIS)));
+        assertThat(decision.isAllowed()).isTrue();
+        assertThat(decision.getDimension()).isEqualTo("tenant");
+        assertThat(decision.getRemaining()).isEqualTo(8);
+    }
+
+    @Test
+    void tagsKeysByRouteAndClient() {
+        compositeRateLimiter.evaluate(ROUTE, List.of(
+            new RateLimitDimension("tenant", "acme", 10, WINDOW_MILLIS),
+            new RateLimitDimension("ip", "10.0.0.1", 10, WINDOW_MILLIS),
+            new RateLimitDimension("api-key", "10.0.0.1", 10, WINDOW_MILLIS)));
+
+        assertThat(redisService.exists("rate-limit:composite:{find-all-departments:acme}:tenant")).isTrue();
+        assertThat(redisService.exists("rate-limit:composite:{find-all-departments:10.0.0.1}:ip")).isTrue();
+        assertThat(redisService.exists("rate-limit:composite:{find-all-departments:10.0.0.1}:api-key")).isTrue();
+    }
+}
@@ -0,0 +1,98 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.yoanesber.rate_limit_with_redis.entity.ConcurrencyPermit;
+
+/*
+ * Two service instances on the same Redis server stand for two nodes of the application.
+ */
+class ConcurrencyLimitServiceTests extends AbstractEmbeddedRedisTests {
+
+    private static final String ROUTE = "find-all-departments";
+    private static final long LEASE_MILLIS = 300;
+
+    private ConcurrencyLimitServiceImpl node;
+    private ConcurrencyLimitServiceImpl otherNode;
+
+    @BeforeEach
+    void setUp() {
+        node = newNode();
+        otherNode = newNode();
+    }
+
+    @Test
+    void deniesAClientKeyOverItsLimitUntilASlotIsReleased() {
+        ConcurrencyPermit first = node.tryAcquire(ROUTE, "10.0.0.1", 2, 0);
+        assertThat(first.isAcquired()).isTrue();
+        assertThat(otherNode.tryAcquire(ROUTE, "10.0.0.1", 2, 0).isAcquired()).isTrue();
+
+        ConcurrencyPermit denied = node.tryAcquire(ROUTE, "10.0.0.1", 2, 0);
+        assertThat(denied.isAcquired()).isFalse();
+        assertThat(denied.getDeniedBy()).isEqualTo("key");
+
+        // Other clients are not affected
+        assertThat(node.tryAcquire(ROUTE, "10.0.0.2", 2, 0).isAcquired()).isTrue();
+
+        node.release(first);
+        assertThat(node.tryAcquire(ROUTE, "10.0.0.1", 2, 0).isAcquired()).isTrue();
+    }
+
+    @Test
+    void deniesOverTheRouteLimitAcrossNodes() {
+        assertThat(node.tryAcquire(ROUTE, "10.0.0.1", 5, 2).isAcquired()).isTrue();
+        assertThat(node.tryAcquire(ROUTE, "10.0.0.2", 5, 2).isAcquired()).isTrue();
+
+        ConcurrencyPermit denied = otherNode.tryAcquire(ROUTE, "10.0.0.3", 5, 2);
+        assertThat(denied.isAcquired()).isFalse();
+        assertThat(denied.getDeniedBy()).isEqualTo("route");
+    }
+
+    @Test
+    void givesBackTheSlotsOfANodeThatStoppedRenewingThem() throws InterruptedException {
+        // The node crashes: it neither renews nor releases its slot
+        assertThat(node.tryAcquire(ROUTE, "10.0.0.1", 1, 1).isAcquired()).isTrue();
+        assertThat(otherNode.tryAcquire(ROUTE, "10.0.0.1", 1, 1).isAcquired()).isFalse();
+
+        Thread.sleep(LEASE_MILLIS + 100);
+
+        assertThat(otherNode.tryAcquire(ROUTE, "10.0.0.1", 1, 1).isAcquired()).isTrue();
+    }
+
+    @Test
+    void keepsTheSlotsOfRunningRequestsWhileTheirLeasesAreRenewed() throws InterruptedException {
+        ConcurrencyPermit permit = node.tryAcquire(ROUTE, "10.0.0.1", 1, 1);
+        assertThat(permit.isAcquired()).isTrue();
+
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(LEASE_MILLIS / 2);
+            node.renewLeases();
+        }
+
+        assertThat(otherNode.tryAcquire(ROUTE, "10.0.0.1", 1, 1).isAcquired()).isFalse();
+
+        node.release(permit);
+        assertThat(otherNode.tryAcquire(ROUTE, "10.0.0.1", 1, 1).isAcquired()).isTrue();
+    }
+
+    private static ConcurrencyLimitServiceImpl newNode() {
+        RateLimitCircuitBreaker circuitBreaker = new RateLimitCircuitBreaker(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 5);
+        ReflectionTestUtils.setField(circuitBreaker, "openDurationMillis", 10000L);
+
+        ClusterSizeEstimator clusterSizeEstimator = mock(ClusterSizeEstimator.class);
+        when(clusterSizeEstimator.clusterSize()).thenReturn(1);
+
+        ConcurrencyLimitServiceImpl service = new ConcurrencyLimitServiceImpl(redisService, circuitBreaker, clusterSizeEstimator);
+        ReflectionTestUtils.setField(service, "leaseMillis", LEASE_MILLIS);
+        ReflectionTestUtils.setField(service, "maxLimit", 100);
+        return service;
+    }
+}
@@ -0,0 +1,86 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitQuota;
+
+class LocalRateLimitCacheTests {
+
+    private static final String KEY = "10.0.0.1.find-all-departments";
+    private static final RateLimitQuota DEFAULT_QUOTA = new RateLimitQuota(10, 60000, RateLimitAlgorithm.FIXED_WINDOW);
+    private static final RateLimitQuota PREMIUM_QUOTA = new RateLimitQuota(100, 60000, RateLimitAlgorithm.FIXED_WINDOW);
+
+    private LocalRateLimitCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LocalRateLimitCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+    }
+
+    @Test
+    void deniesLocallyUntilTheQuotaResets() throws InterruptedException {
+        cache.recordDenied(KEY, DEFAULT_QUOTA, 100);
+
+        RateLimitDecision decision = cache.tryAcquire(KEY, DEFAULT_QUOTA);
+        assertThat(decision.isAllowed()).isFalse();
+        assertThat(decision.getResetAfterMillis()).isBetween(1L, 100L);
+
+        Thread.sleep(150);
+
+        assertThat(cache.tryAcquire(KEY, DEFAULT_QUOTA)).isNull();
+    }
+
+    @Test
+    void verdictsOfAnotherQuotaDoNotApply() {
+        cache.recordDenied(KEY, DEFAULT_QUOTA, 60000);
+
+        // The client moved to another tier, or the policy of the route changed
+        assertThat(cache.tryAcquire(KEY, PREMIUM_QUOTA)).isNull();
+        assertThat(cache.tryAcquire(KEY, new RateLimitQuota(10, 60000, RateLimitAlgorithm.GCRA))).isNull();
+        assertThat(cache.tryAcquire(KEY, DEFAULT_QUOTA).isAllowed()).isFalse();
+    }
+
+    @Test
+    void admitsLeasedTokensUntilTheLeaseIsUsedUp() {
+        cache.recordLease(KEY, DEFAULT_QUOTA, 2, 5, 60000);
+
+        RateLimitDecision first = cache.tryAcquire(KEY, DEFAULT_QUOTA);
+        assertThat(first.isAllowed()).isTrue();
+        assertThat(first.getRemaining()).isEqualTo(6);
+
+        RateLimitDecision second = cache.tryAcquire(KEY, DEFAULT_QUOTA);
+        assertThat(second.isAllowed()).isTrue();
+        assertThat(second.getRemaining()).isEqualTo(5);
+
+        assertThat(cache.tryAcquire(KEY, DEFAULT_QUOTA)).isNull();
+        assertThat(cache.tryAcquire(KEY, PREMIUM_QUOTA)).isNull();
+    }
+
+    @Test
+    void mergesALeaseRenewedConcurrentlyIntoTheCurrentOne() {
+        cache.recordLease(KEY, DEFAULT_QUOTA, 1, 5, 60000);
+        cache.recordLease(KEY, DEFAULT_QUOTA, 1, 4, 60000);
+
+        assertThat(cache.tryAcquire(KEY, DEFAULT_QUOTA).isAllowed()).isTrue();
+        assertThat(cache.tryAcquire(KEY, DEFAULT_QUOTA).isAllowed()).isTrue();
+        assertThat(cache.tryAcquire(KEY, DEFAULT_QUOTA)).isNull();
+    }
+
+    @Test
+    void stopsCachingVerdictsWhenFull() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 1L);
+
+        cache.recordDenied(KEY, DEFAULT_QUOTA, 60000);
+        cache.recordDenied("10.0.0.2.find-all-departments", DEFAULT_QUOTA, 60000);
+
+        assertThat(cache.tryAcquire(KEY, DEFAULT_QUOTA).isAllowed()).isFalse();
+        assertThat(cache.tryAcquire("10.0.0.2.find-all-departments", DEFAULT_QUOTA)).isNull();
+    }
+}
@@ -0,0 +1,81 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/*
+ * range_index_evict.lua on the index of the cached department pages, as DepartmentServiceImpl
+ * writes it: pages of 3 ids (, d003], (d003, d006] and the last page (d006, end of ids].
+ */
+class RangeIndexEvictTests extends AbstractEmbeddedRedisTests {
+
+    private static final RedisScript<Long> RANGE_INDEX_EVICT_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/range_index_evict.lua"), Long.class);
+    private static final String INDEX_KEY = "department-pages";
+    private static final String LAST_PAGE_END = "\uffff";
+    private static final String FIRST_PAGE = "{department-pages}::3";
+    private static final String SECOND_PAGE = "{department-pages}:d003:3";
+    private static final String LAST_PAGE = "{department-pages}:d006:3";
+
+    @BeforeEach
+    void setUp() {
+        cachePage(FIRST_PAGE, "", "d003");
+        cachePage(SECOND_PAGE, "d003", "d006");
+        cachePage(LAST_PAGE, "d006", LAST_PAGE_END);
+    }
+
+    @Test
+    void evictsOnlyThePageContainingAnId() {
+        assertThat(evict("d005")).isEqualTo(1);
+
+        assertThat(redisService.exists(FIRST_PAGE)).isTrue();
+        assertThat(redisService.exists(SECOND_PAGE)).isFalse();
+        assertThat(redisService.exists(LAST_PAGE)).isTrue();
+        assertThat(indexSize()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsThePageEndingWithAnId() {
+        assertThat(evict("d003")).isEqualTo(1);
+
+        assertThat(redisService.exists(FIRST_PAGE)).isFalse();
+        assertThat(redisService.exists(SECOND_PAGE)).isTrue();
+    }
+
+    @Test
+    void evictsTheLastPageForAnIdAfterEveryCachedOne() {
+        assertThat(evict("d100")).isEqualTo(1);
+
+        assertThat(redisService.exists(SECOND_PAGE)).isTrue();
+        assertThat(redisService.exists(LAST_PAGE)).isFalse();
+    }
+
+    @Test
+    void dropsTheIndexEntriesOfPagesThatExpired() {
+        redisService.delete(LAST_PAGE);
+
+        assertThat(evict("d004")).isEqualTo(1);
+
+        assertThat(indexSize()).isEqualTo(1);
+        assertThat(redisService.exists(FIRST_PAGE)).isTrue();
+    }
+
+    private void cachePage(String key, String after, String last) {
+        redisService.set(key, "page", 60000, TimeUnit.MILLISECONDS);
+        redisService.addToSortedSet(INDEX_KEY, last + '\0' + after + '\0' + key, 0);
+    }
+
+    private long evict(String id) {
+        return redisService.executeScript(RANGE_INDEX_EVICT_SCRIPT, List.of(INDEX_KEY), id);
+    }
+
+    private long indexSize() {
+        return redisTemplate.opsForZSet().zCard(INDEX_KEY);
+    }
+}
@@ -0,0 +1,126 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class RateLimitCircuitBreakerTests {
+
+    private static final long OPEN_DURATION_MILLIS = 100;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new RateLimitCircuitBreaker(meterRegistry);
+        ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(circuitBreaker, "openDurationMillis", OPEN_DURATION_MILLIS);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresOnly() {
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(state()).isEqualTo(0.0);
+
+        circuitBreaker.recordFailure();
+
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+        assertThat(circuitBreaker.retryAfterMillis()).isBetween(1L, OPEN_DURATION_MILLIS);
+        assertThat(state()).isEqualTo(1.0);
+    }
+
+    @Test
+    void letsASingleProbeThroughOnceTheOpenDurationHasElapsed() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION_MILLIS + 20);
+
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(state()).isEqualTo(2.0);
+
+        // Other calls use the fallback while the probe is in flight
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void closesWhenTheProbeSucceeds() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION_MILLIS + 20);
+
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        circuitBreaker.recordSuccess();
+
+        assertThat(state()).isEqualTo(0.0);
+        assertThat(circuitBreaker.retryAfterMillis()).isZero();
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void staysOpenWhenACallStartedBeforeItOpenedSucceeds() {
+        open();
+
+        // A slow call admitted while the circuit was closed completes now
+        circuitBreaker.recordSuccess();
+
+        assertThat(state()).isEqualTo(1.0);
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+        assertThat(circuitBreaker.retryAfterMillis()).isBetween(1L, OPEN_DURATION_MILLIS);
+    }
+
+    @Test
+    void opensAgainWhenTheProbeFails() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION_MILLIS + 20);
+
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        circuitBreaker.recordFailure();
+
+        assertThat(state()).isEqualTo(1.0);
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void releasedProbeIsGivenToTheNextCall() throws InterruptedException {
+        open();
+        Thread.sleep(OPEN_DURATION_MILLIS + 20);
+
+        // The probe was answered by the local tier without reaching Redis
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        circuitBreaker.releaseProbe();
+
+        assertThat(state()).isEqualTo(2.0);
+        assertThat(circuitBreaker.allowRequest()).isTrue();
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void releaseProbeLeavesAnOpenCircuitOpen() {
+        open();
+
+        circuitBreaker.releaseProbe();
+
+        assertThat(circuitBreaker.allowRequest()).isFalse();
+        assertThat(state()).isEqualTo(1.0);
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.recordFailure();
+        }
+    }
+
+    private double state() {
+        return meterRegistry.get("rate.limit.circuit.state").gauge().value();
+    }
+}
@@ -0,0 +1,102 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.yoanesber.rate_limit_with_redis.config.RateLimitProperties;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitQuota;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitRouteQuotas;
+import com.yoanesber.rate_limit_with_redis.service.RedisService;
+
+class RateLimitPolicyServiceTests {
+
+    private static final String ROUTE = "find-all-departments";
+    private static final RateLimitQuota ANNOTATION_QUOTA = new RateLimitQuota(1, 1000, RateLimitAlgorithm.FIXED_WINDOW);
+
+    private RateLimitProperties properties;
+    private RedisService redisService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.getPolicies().put(ROUTE, Map.of("default", quota(5), "premium", quota(100)));
+        properties.getTenants().put("key-1", "premium");
+        properties.getUsers().put("alice", "premium");
+        properties.getIps().put("10.0.0.1", "premium");
+
+        redisService = mock(RedisService.class);
+        when(redisService.getHash(anyString(), eq(RateLimitProperties.Quota.class))).thenReturn(Map.of());
+        when(redisService.getHash(anyString(), eq(String.class))).thenReturn(Map.of());
+    }
+
+    @Test
+    void resolvesTheTierOfTheMostSpecificIdentity() {
+        properties.getTenants().put("key-2", "gold");
+        RateLimitPolicyServiceImpl service = new RateLimitPolicyServiceImpl(properties, redisService);
+
+        assertThat(service.resolveTier("key-2", "alice", "10.0.0.1")).isEqualTo("gold");
+        assertThat(service.resolveTier("unknown", "alice", "10.0.0.2")).isEqualTo("premium");
+        assertThat(service.resolveTier(null, null, "10.0.0.1")).isEqualTo("premium");
+        assertThat(service.resolveTier(null, "bob", "10.0.0.2")).isEqualTo("default");
+    }
+
+    @Test
+    void appliesTheRouteDefaultToTiersTheRouteDoesNotConfigure() {
+        properties.getTenants().put("key-2", "gold");
+        RateLimitPolicyServiceImpl service = new RateLimitPolicyServiceImpl(properties, redisService);
+        RateLimitRouteQuotas quotas = service.routeQuotas(ROUTE);
+
+        assertThat(quotas.resolve("premium", ANNOTATION_QUOTA).getLimit()).isEqualTo(100);
+        assertThat(quotas.resolve("gold", ANNOTATION_QUOTA).getLimit()).isEqualTo(5);
+        assertThat(quotas.resolve("default", ANNOTATION_QUOTA).getLimit()).isEqualTo(5);
+
+        // A route without a policy keeps the quota of its annotation
+        assertThat(service.routeQuotas("find-department").resolve("premium", ANNOTATION_QUOTA)).isSameAs(ANNOTATION_QUOTA);
+    }
+
+    @Test
+    void reloadUpdatesTheQuotasAlreadyHandedOut() {
+        RateLimitPolicyServiceImpl service = new RateLimitPolicyServiceImpl(properties, redisService);
+        RateLimitRouteQuotas quotas = service.routeQuotas(ROUTE);
+
+        RateLimitProperties.Quota override = quota(50);
+        override.setAlgorithm(RateLimitAlgorithm.GCRA);
+        when(redisService.getHash("rate-limit:policies", RateLimitProperties.Quota.class))
+            .thenReturn(Map.of(ROUTE + ":premium", override));
+        when(redisService.getHash("rate-limit:ips", String.class)).thenReturn(Map.of("10.0.0.2", "premium"));
+        service.reload();
+
+        assertThat(quotas.resolve("premium", ANNOTATION_QUOTA).getLimit()).isEqualTo(50);
+        assertThat(quotas.resolve("premium", ANNOTATION_QUOTA).getAlgorithm()).isEqualTo(RateLimitAlgorithm.GCRA);
+        assertThat(service.resolveTier(null, null, "10.0.0.2")).isEqualTo("premium");
+    }
+
+    @Test
+    void reloadKeepsThePreviousPoliciesWhenRedisFails() {
+        RateLimitPolicyServiceImpl service = new RateLimitPolicyServiceImpl(properties, redisService);
+        RateLimitRouteQuotas quotas = service.routeQuotas(ROUTE);
+
+        when(redisService.getHash("rate-limit:policies", RateLimitProperties.Quota.class))
+            .thenThrow(new RuntimeException("Connection refused"));
+        service.reload();
+
+        assertThat(quotas.resolve("premium", ANNOTATION_QUOTA).getLimit()).isEqualTo(100);
+        assertThat(service.resolveTier("key-1", null, null)).isEqualTo("premium");
+    }
+
+    private static RateLimitProperties.Quota quota(int limit) {
+        RateLimitProperties.Quota quota = new RateLimitProperties.Quota();
+        quota.setLimit(limit);
+        quota.setWindow(Duration.ofMinutes(1));
+        return quota;
+    }
+}
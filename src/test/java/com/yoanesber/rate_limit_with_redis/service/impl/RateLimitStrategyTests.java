@@ -0,0 +1,172 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitStrategy;
+
+class RateLimitStrategyTests extends AbstractEmbeddedRedisTests {
+
+    private static final String KEY = "10.0.0.1.find-all-departments";
+
+    @Test
+    void fixedWindowDeniesOverTheLimitAndResetsWhenTheWindowRollsOver() throws InterruptedException {
+        RateLimitStrategy strategy = new FixedWindowRateLimitStrategy(redisService);
+
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 2);
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 1);
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 0);
+
+        RateLimitDecision denied = strategy.evaluate(KEY, 3, 300);
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getResetAfterMillis()).isBetween(1L, 300L);
+
+        Thread.sleep(denied.getResetAfterMillis() + 50);
+
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 2);
+    }
+
+    @Test
+    void slidingWindowLogCountsEveryRequestOfTheLastWindow() throws InterruptedException {
+        RateLimitStrategy strategy = new SlidingWindowLogRateLimitStrategy(redisService);
+
+        assertAllowed(strategy.evaluate(KEY, 2, 400), 1);
+        Thread.sleep(200);
+        assertAllowed(strategy.evaluate(KEY, 2, 400), 0);
+
+        // The first request is still inside the window; it slides out before the second one does
+        RateLimitDecision denied = strategy.evaluate(KEY, 2, 400);
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getResetAfterMillis()).isBetween(1L, 200L);
+
+        Thread.sleep(denied.getResetAfterMillis() + 50);
+
+        assertAllowed(strategy.evaluate(KEY, 2, 400), 0);
+        assertThat(strategy.evaluate(KEY, 2, 400).isAllowed()).isFalse();
+    }
+
+    @Test
+    void slidingWindowCounterDeniesOverTheLimitAndForgetsWindowsThatSlidOut() throws InterruptedException {
+        RateLimitStrategy strategy = new SlidingWindowCounterRateLimitStrategy(redisService);
+
+        assertThat(strategy.evaluate(KEY, 2, 500).isAllowed()).isTrue();
+        assertThat(strategy.evaluate(KEY, 2, 500).isAllowed()).isTrue();
+
+        RateLimitDecision denied = strategy.evaluate(KEY, 2, 500);
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getResetAfterMillis()).isBetween(1L, 500L);
+
+        // Two windows later neither the current nor the previous window holds a request
+        Thread.sleep(1050);
+
+        assertAllowed(strategy.evaluate(KEY, 2, 500), 1);
+    }
+
+    @Test
+    void tokenBucketAllowsABurstThenRefillsContinuously() throws InterruptedException {
+        RateLimitStrategy strategy = new TokenBucketRateLimitStrategy(redisService);
+
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 2);
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 1);
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 0);
+
+        // One token refills every 100 ms
+        RateLimitDecision denied = strategy.evaluate(KEY, 3, 300);
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getResetAfterMillis()).isBetween(1L, 100L);
+
+        Thread.sleep(denied.getResetAfterMillis() + 20);
+
+        assertThat(strategy.evaluate(KEY, 3, 300).isAllowed()).isTrue();
+        assertThat(strategy.evaluate(KEY, 3, 300).isAllowed()).isFalse();
+    }
+
+    @Test
+    void gcraAllowsABurstOfTheLimitThenSpacesRequests() throws InterruptedException {
+        RateLimitStrategy strategy = new GcraRateLimitStrategy(redisService);
+
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 2);
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 1);
+        assertAllowed(strategy.evaluate(KEY, 3, 300), 0);
+
+        // After the burst one request is allowed every emission interval of 100 ms
+        RateLimitDecision denied = strategy.evaluate(KEY, 3, 300);
+        assertThat(denied.isAllowed()).isFalse();
+        assertThat(denied.getRemaining()).isZero();
+        assertThat(denied.getResetAfterMillis()).isBetween(1L, 100L);
+
+        Thread.sleep(denied.getResetAfterMillis() + 20);
+
+        assertThat(strategy.evaluate(KEY, 3, 300).isAllowed()).isTrue();
+        assertThat(strategy.evaluate(KEY, 3, 300).isAllowed()).isFalse();
+    }
+
+    @Test
+    void algorithmsKeepTheirStateUnderSeparateKeys() {
+        RateLimitStrategy fixedWindow = new FixedWindowRateLimitStrategy(redisService);
+        RateLimitStrategy gcra = new GcraRateLimitStrategy(redisService);
+
+        assertThat(fixedWindow.evaluate(KEY, 1, 60000).isAllowed()).isTrue();
+        assertThat(fixedWindow.evaluate(KEY, 1, 60000).isAllowed()).isFalse();
+
+        // Switching the algorithm of an endpoint never reads the key of another data type
+        assertAllowed(gcra.evaluate(KEY, 1, 60000), 0);
+    }
+
+    @Test
+    void consumesSeveralPermitsOnlyWhenAllOfThemAreAvailable() {
+        for (RateLimitStrategy strategy : strategies()) {
+            String key = KEY + "." + strategy.getAlgorithm();
+
+            assertAllowed(strategy.evaluate(key, 5, 60000, 3), 2);
+
+            // A denied request consumes nothing, so a cheaper one still fits
+            assertThat(strategy.evaluate(key, 5, 60000, 3).isAllowed()).as(strategy.getAlgorithm().name()).isFalse();
+            assertAllowed(strategy.evaluate(key, 5, 60000, 2), 0);
+            assertThat(strategy.evaluate(key, 5, 60000, 1).isAllowed()).as(strategy.getAlgorithm().name()).isFalse();
+        }
+    }
+
+    @Test
+    void deniesARequestCostingMoreThanTheLimit() {
+        for (RateLimitStrategy strategy : strategies()) {
+            String key = KEY + "." + strategy.getAlgorithm();
+
+            assertThat(strategy.evaluate(key, 5, 60000, 6).isAllowed()).as(strategy.getAlgorithm().name()).isFalse();
+            assertAllowed(strategy.evaluate(key, 5, 60000, 5), 0);
+        }
+    }
+
+    @Test
+    void settleChargesBeyondTheLimitAndDelaysLaterRequests() {
+        for (RateLimitStrategy strategy : strategies()) {
+            String key = KEY + "." + strategy.getAlgorithm();
+
+            assertAllowed(strategy.evaluate(key, 2, 60000), 1);
+
+            // The request turned out to cost 3 permits, 2 more than evaluated
+            strategy.settle(key, 2, 60000, 2);
+
+            RateLimitDecision denied = strategy.evaluate(key, 2, 60000);
+            assertThat(denied.isAllowed()).as(strategy.getAlgorithm().name()).isFalse();
+            assertThat(denied.getRemaining()).isZero();
+        }
+    }
+
+    private static List<RateLimitStrategy> strategies() {
+        return List.of(
+            new FixedWindowRateLimitStrategy(redisService),
+            new SlidingWindowLogRateLimitStrategy(redisService),
+            new SlidingWindowCounterRateLimitStrategy(redisService),
+            new TokenBucketRateLimitStrategy(redisService),
+            new GcraRateLimitStrategy(redisService));
+    }
+
+    private static void assertAllowed(RateLimitDecision decision, long remaining) {
+        assertThat(decision.isAllowed()).isTrue();
+        assertThat(decision.getRemaining()).isEqualTo(remaining);
+    }
+}
@@ -0,0 +1,89 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitAlgorithm;
+import com.yoanesber.rate_limit_with_redis.entity.RateLimitDecision;
+import com.yoanesber.rate_limit_with_redis.service.RateLimitStrategy;
+import com.yoanesber.rate_limit_with_redis.service.ReactiveRedisService;
+
+class ReactiveRateLimitServiceTests extends AbstractEmbeddedRedisTests {
+
+    private static final String KEY = "10.0.0.1.find-all-departments";
+
+    private List<RateLimitStrategy> strategies;
+    private ReactiveRedisService reactiveRedisService;
+    private RateLimitCircuitBreaker circuitBreaker;
+    private RateLimitFallback fallback;
+    private ReactiveRateLimitServiceImpl reactiveRateLimitService;
+
+    @BeforeEach
+    void setUp() {
+        strategies = List.of(
+            new FixedWindowRateLimitStrategy(redisService),
+            new SlidingWindowLogRateLimitStrategy(redisService),
+            new SlidingWindowCounterRateLimitStrategy(redisService),
+            new TokenBucketRateLimitStrategy(redisService),
+            new GcraRateLimitStrategy(redisService));
+
+        reactiveRedisService = new ReactiveRedisServiceImpl(new ReactiveRedisTemplate<>(connectionFactory,
+            RedisSerializationContext.<String, byte[]>newSerializationContext(new StringRedisSerializer())
+                .value(RedisSerializer.byteArray())
+                .hashKey(new StringRedisSerializer())
+                .hashValue(RedisSerializer.byteArray())
+                .build()));
+
+        circuitBreaker = new RateLimitCircuitBreaker(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 1);
+        ReflectionTestUtils.setField(circuitBreaker, "openDurationMillis", 10000L);
+
+        fallback = mock(RateLimitFallback.class);
+        reactiveRateLimitService = new ReactiveRateLimitServiceImpl(strategies, reactiveRedisService,
+            new LocalRateLimitCache(), circuitBreaker, fallback);
+    }
+
+    @Test
+    void sharesQuotasWithTheBlockingStrategies() {
+        for (RateLimitStrategy strategy : strategies) {
+            String key = KEY + "." + strategy.getAlgorithm();
+
+            RateLimitDecision decision = check(key, 3, strategy.getAlgorithm(), 2);
+            assertThat(decision.isAllowed()).as(strategy.getAlgorithm().name()).isTrue();
+            assertThat(decision.getRemaining()).as(strategy.getAlgorithm().name()).isEqualTo(1);
+
+            // The blocking path sees the permits consumed without blocking
+            assertThat(strategy.evaluate(key, 3, 60000).isAllowed()).as(strategy.getAlgorithm().name()).isTrue();
+            assertThat(check(key, 3, strategy.getAlgorithm(), 1).isAllowed()).as(strategy.getAlgorithm().name()).isFalse();
+        }
+    }
+
+    @Test
+    void usesTheFallbackWhileTheCircuitIsOpen() {
+        RateLimitDecision fallbackDecision = new RateLimitDecision(true, 4, 60000);
+        when(fallback.decide(eq(KEY), anyInt(), anyLong(), anyInt())).thenReturn(fallbackDecision);
+        circuitBreaker.recordFailure();
+
+        assertThat(check(KEY, 5, RateLimitAlgorithm.GCRA, 1)).isSameAs(fallbackDecision);
+        assertThat(redisService.exists("rate-limit:gcra:{" + KEY + "}")).isFalse();
+    }
+
+    private RateLimitDecision check(String key, int maxRequests, RateLimitAlgorithm algorithm, int permits) {
+        return reactiveRateLimitService.check(key, maxRequests, 60000, TimeUnit.MILLISECONDS, algorithm, permits).block();
+    }
+}
@@ -0,0 +1,63 @@
+package com.yoanesber.rate_limit_with_redis.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+
+class RedisServiceTests extends AbstractEmbeddedRedisTests {
+
+    private static final RedisScript<Long> HASH_PUT_IF_EXISTS_SCRIPT =
+        RedisScript.of(new ClassPathResource("scripts/hash_put_if_exists.lua"), Long.class);
+
+    @Test
+    void executeBatchAppliesTheQueuedWritesInOrder() {
+        redisService.setHash("departments", Map.of("d001", "Engineering"), 0, TimeUnit.MILLISECONDS);
+
+        redisService.executeBatch(writes -> {
+            writes.increment("department:{d001}:version", 1);
+            writes.expire("department:{d001}:version", 60000, TimeUnit.MILLISECONDS);
+            writes.set("department:{d001}", "Engineering", 60000, TimeUnit.MILLISECONDS);
+            writes.delete("missing:department:{d001}");
+            writes.putHashEntryIfExists("departments", "d002", "Finance");
+            writes.putHashEntryIfExists("department-list", "d002", "Finance");
+        });
+
+        assertThat(redisService.getCounter("department:{d001}:version")).isEqualTo(1);
+        assertThat(redisTemplate.getExpire("department:{d001}:version", TimeUnit.MILLISECONDS)).isBetween(1L, 60000L);
+        assertThat(redisService.get("department:{d001}", String.class)).isEqualTo("Engineering");
+        assertThat(redisService.getHash("departments", String.class)).containsEntry("d002", "Finance");
+
+        // The script only writes into an existing hash
+        assertThat(redisService.exists("department-list")).isFalse();
+    }
+
+    @Test
+    void executeBatchRunsScriptsTheServerHasNotCachedYet() {
+        redisService.setHash("departments", Map.of("d001", "Engineering"), 0, TimeUnit.MILLISECONDS);
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptFlush();
+            return null;
+        });
+
+        // EVAL, not EVALSHA: a NOSCRIPT reply inside a pipeline would come too late to fall back
+        redisService.executeBatch(writes ->
+            writes.executeScript(HASH_PUT_IF_EXISTS_SCRIPT, List.of("departments"), "d002", "\"Finance\""));
+
+        assertThat(redisService.getHash("departments", String.class)).containsEntry("d002", "Finance");
+    }
+
+    @Test
+    void getCounterReadsAnIncrementedKey() {
+        assertThat(redisService.getCounter("department:{d001}:version")).isZero();
+
+        redisService.increment("department:{d001}:version", 2);
+
+        assertThat(redisService.getCounter("department:{d001}:version")).isEqualTo(2);
+    }
+}